@@ -0,0 +1,100 @@
+// Load test for the user and card read paths.
+//
+// Run it once per execution mode against the same data and compare the summaries:
+//   VIRTUAL_THREADS_ENABLED=false java -jar target/user-service-*.jar
+//   k6 run -e BASE_URL=http://localhost:8083 loadtest/user-service.js
+//   VIRTUAL_THREADS_ENABLED=true java -jar target/user-service-*.jar
+//   k6 run -e BASE_URL=http://localhost:8083 loadtest/user-service.js
+//
+// Start the service with -Djdk.tracePinnedThreads=short in virtual-thread mode to log any pinning.
+import http from 'k6/http';
+import { check } from 'k6';
+import { Trend } from 'k6/metrics';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8083';
+const USERS = parseInt(__ENV.USERS || '2000');
+const CARD_USERS = parseInt(__ENV.CARD_USERS || '500');
+const FIRST_USER_ID = parseInt(__ENV.FIRST_USER_ID || '500000');
+const PEAK_VUS = parseInt(__ENV.PEAK_VUS || '800');
+const DURATION = __ENV.DURATION || '60s';
+
+const HEADERS = {
+    'X-Is-Valid': 'true',
+    'X-User-Id': '1',
+    'X-Role': 'ADMIN',
+};
+
+const userById = new Trend('user_by_id', true);
+const usersBySurname = new Trend('users_by_surname', true);
+const cardById = new Trend('card_by_id', true);
+const cardsByUser = new Trend('cards_by_user', true);
+
+export const options = {
+    setupTimeout: '5m',
+    scenarios: {
+        reads: {
+            executor: 'ramping-vus',
+            startVUs: 0,
+            stages: [
+                { duration: '15s', target: PEAK_VUS },
+                { duration: DURATION, target: PEAK_VUS },
+                { duration: '5s', target: 0 },
+            ],
+        },
+    },
+    thresholds: {
+        http_req_failed: ['rate<0.01'],
+    },
+};
+
+export function setup() {
+    const lines = [];
+    for (let i = 0; i < USERS; i++) {
+        lines.push(JSON.stringify({
+            userId: FIRST_USER_ID + i,
+            name: 'Load',
+            surname: 'Tester' + (i % 100),
+            birthDate: '1990-01-01',
+            email: `load.tester.${FIRST_USER_ID + i}@example.com`,
+        }));
+    }
+    const imported = http.post(`${BASE_URL}/api/user/import`, lines.join('\n'), {
+        headers: Object.assign({ 'Content-Type': 'application/x-ndjson' }, HEADERS),
+        timeout: '5m',
+    });
+    check(imported, { 'users imported': (r) => r.status === 200 });
+
+    const cardIds = [];
+    for (let i = 0; i < CARD_USERS; i++) {
+        const res = http.post(`${BASE_URL}/api/card/create/${FIRST_USER_ID + i}`, null, { headers: HEADERS });
+        if (res.status === 201)
+            cardIds.push(res.json('id'));
+    }
+
+    return { cardIds };
+}
+
+export default function (data) {
+    const userId = FIRST_USER_ID + Math.floor(Math.random() * USERS);
+    const roll = Math.random();
+
+    if (roll < 0.4) {
+        const res = http.get(`${BASE_URL}/api/user/${userId}`, { headers: HEADERS, tags: { name: 'user_by_id' } });
+        check(res, { 'user 200': (r) => r.status === 200 });
+        userById.add(res.timings.duration);
+    } else if (roll < 0.6) {
+        const surname = 'tester' + Math.floor(Math.random() * 100);
+        const res = http.get(`${BASE_URL}/api/user/all?surname=${surname}&limit=10`, { headers: HEADERS, tags: { name: 'users_by_surname' } });
+        check(res, { 'users 200': (r) => r.status === 200 });
+        usersBySurname.add(res.timings.duration);
+    } else if (roll < 0.85 && data.cardIds.length > 0) {
+        const cardId = data.cardIds[Math.floor(Math.random() * data.cardIds.length)];
+        const res = http.get(`${BASE_URL}/api/card/${cardId}`, { headers: HEADERS, tags: { name: 'card_by_id' } });
+        check(res, { 'card 200': (r) => r.status === 200 });
+        cardById.add(res.timings.duration);
+    } else {
+        const res = http.get(`${BASE_URL}/api/card/user/${userId}`, { headers: HEADERS, tags: { name: 'cards_by_user' } });
+        check(res, { 'cards 200': (r) => r.status === 200 });
+        cardsByUser.add(res.timings.duration);
+    }
+}
@@ -0,0 +1,73 @@
+package com.userservise.app.benchmark;
+
+import com.userservise.app.model.dto.CardDto;
+import com.userservise.app.model.dto.UserDto;
+import com.userservise.app.model.entity.Card;
+import com.userservise.app.model.entity.User;
+import com.userservise.app.model.enums.ActiveStatus;
+import lombok.experimental.UtilityClass;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+@UtilityClass
+public class Fixtures {
+
+    public static User user(int cardCount) {
+        User user = new User();
+        user.setId(1);
+        user.setUserId(1001);
+        user.setName("Nikita");
+        user.setSurname("Yatsko");
+        user.setBirthDate(LocalDate.of(1985, 9, 22));
+        user.setEmail("nikitayatsko@example.com");
+        user.setActive(ActiveStatus.ACTIVE);
+        user.setCreatedAt(LocalDateTime.of(2024, 1, 1, 12, 0));
+        user.setUpdatedAt(LocalDateTime.of(2024, 6, 1, 12, 0));
+
+        List<Card> cards = new ArrayList<>();
+        for (int i = 0; i < cardCount; i++)
+            cards.add(card(user, i));
+        user.setCards(cards);
+
+        return user;
+    }
+
+    public static Card card(User owner, int index) {
+        Card card = new Card();
+        card.setId(index + 1);
+        card.setOwner(owner);
+        card.setNumber(String.format("4000%012d", index));
+        card.setHolder(owner.getName() + " " + owner.getSurname());
+        card.setExpirationDate(LocalDate.of(2029, 9, 30));
+        card.setActive(ActiveStatus.ACTIVE);
+        card.setCreatedAt(LocalDateTime.of(2024, 1, 1, 12, 0));
+        card.setUpdatedAt(LocalDateTime.of(2024, 6, 1, 12, 0));
+
+        return card;
+    }
+
+    public static UserDto userDto(int cardCount) {
+        List<CardDto> cards = new ArrayList<>();
+        for (int i = 0; i < cardCount; i++)
+            cards.add(cardDto(i));
+
+        return new UserDto(1001, "Nikita", "Yatsko", LocalDate.of(1985, 9, 22), "nikitayatsko@example.com",
+                cards, ActiveStatus.ACTIVE, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 6, 1), 42L);
+    }
+
+    public static CardDto cardDto(int index) {
+        CardDto card = new CardDto();
+        card.setId(index + 1);
+        card.setNumber(String.format("4000%012d", index));
+        card.setHolder("Nikita Yatsko");
+        card.setExpirationDate(LocalDate.of(2029, 9, 30));
+        card.setActive(ActiveStatus.ACTIVE);
+        card.setCreatedAt(LocalDate.of(2024, 1, 1));
+        card.setUpdatedAt(LocalDate.of(2024, 6, 1));
+
+        return card;
+    }
+}
@@ -0,0 +1,85 @@
+package com.userservise.app.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.userservise.app.benchmark.Fixtures;
+import com.userservise.app.model.dto.CardDto;
+import com.userservise.app.model.dto.UserDto;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CacheValueSerializerBenchmark {
+
+    @Param({"legacy-json", "json", "smile", "smile-deflate"})
+    private String codec;
+
+    @Param({"0", "5"})
+    private int cardCount;
+
+    private RedisSerializer<UserDto> userSerializer;
+    private RedisSerializer<CardDto> cardSerializer;
+    private UserDto user;
+    private CardDto card;
+    private byte[] userBytes;
+    private byte[] cardBytes;
+
+    @Setup
+    public void setUp() {
+        userSerializer = serializer(UserDto.class);
+        cardSerializer = serializer(CardDto.class);
+
+        user = Fixtures.userDto(cardCount);
+        card = Fixtures.cardDto(0);
+        userBytes = userSerializer.serialize(user);
+        cardBytes = cardSerializer.serialize(card);
+    }
+
+    @Benchmark
+    public byte[] serializeUser() {
+        return userSerializer.serialize(user);
+    }
+
+    @Benchmark
+    public UserDto deserializeUser() {
+        return userSerializer.deserialize(userBytes);
+    }
+
+    @Benchmark
+    public byte[] serializeCard() {
+        return cardSerializer.serialize(card);
+    }
+
+    @Benchmark
+    public CardDto deserializeCard() {
+        return cardSerializer.deserialize(cardBytes);
+    }
+
+    private <T> RedisSerializer<T> serializer(Class<T> type) {
+        return switch (codec) {
+            case "legacy-json" -> legacySerializer(type);
+            case "json" -> new CacheValueSerializer<>(type, CacheValueSerializer.Format.JSON, 0);
+            case "smile" -> new CacheValueSerializer<>(type, CacheValueSerializer.Format.SMILE, 0);
+            case "smile-deflate" -> new CacheValueSerializer<>(type, CacheValueSerializer.Format.SMILE, 1);
+            default -> throw new IllegalArgumentException(codec);
+        };
+    }
+
+    // The serializer RedisConfig used before the versioned codec, kept as the baseline.
+    private static <T> RedisSerializer<T> legacySerializer(Class<T> type) {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+        return new Jackson2JsonRedisSerializer<>(objectMapper, type);
+    }
+}
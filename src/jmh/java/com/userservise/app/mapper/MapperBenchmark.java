@@ -0,0 +1,48 @@
+package com.userservise.app.mapper;
+
+import com.userservise.app.benchmark.Fixtures;
+import com.userservise.app.model.dto.CardDto;
+import com.userservise.app.model.dto.UserDto;
+import com.userservise.app.model.entity.Card;
+import com.userservise.app.model.entity.User;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MapperBenchmark {
+
+    @Param({"0", "5"})
+    private int cardCount;
+
+    private UserMapper userMapper;
+    private CardMapper cardMapper;
+    private User user;
+    private Card card;
+
+    @Setup
+    public void setUp() {
+        cardMapper = new CardMapperImpl();
+        userMapper = new UserMapperImpl();
+        ReflectionTestUtils.setField(userMapper, "cardMapper", cardMapper);
+
+        user = Fixtures.user(cardCount);
+        card = Fixtures.card(user, 0);
+    }
+
+    @Benchmark
+    public UserDto userToDto() {
+        return userMapper.toDto(user);
+    }
+
+    @Benchmark
+    public CardDto cardToDto() {
+        return cardMapper.toDto(card);
+    }
+}
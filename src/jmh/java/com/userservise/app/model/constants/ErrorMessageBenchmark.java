@@ -0,0 +1,26 @@
+package com.userservise.app.model.constants;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ErrorMessageBenchmark {
+
+    private Integer userId = 1001;
+
+    @Benchmark
+    public String userNotFound() {
+        return ErrorMessage.USER_NOT_FOUND_BY_ID.getMessage(userId);
+    }
+
+    @Benchmark
+    public String withoutArguments() {
+        return ErrorMessage.USER_ID_IS_REQUIRED.getMessage();
+    }
+}
@@ -0,0 +1,62 @@
+package com.userservise.app.security.authorization;
+
+import com.userservise.app.security.model.CustomUserDetails;
+import org.aopalliance.intercept.MethodInvocation;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.method.PreAuthorizeAuthorizationManager;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.util.SimpleMethodInvocation;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AccessPolicyAuthorizationManagerBenchmark {
+
+    // A plain user reading their own record, the common non-admin request.
+    private final Supplier<Authentication> authentication = () -> new UsernamePasswordAuthenticationToken(
+            new CustomUserDetails(1L, "USER"), null, AuthorityUtils.createAuthorityList("ROLE_USER"));
+
+    private final PreAuthorizeAuthorizationManager spelManager = new PreAuthorizeAuthorizationManager();
+    private final AccessPolicyAuthorizationManager policyManager = new AccessPolicyAuthorizationManager(() -> null);
+
+    private MethodInvocation spelInvocation;
+    private MethodInvocation policyInvocation;
+
+    @Setup
+    public void setUp() throws NoSuchMethodException {
+        Endpoints endpoints = new Endpoints();
+        spelInvocation = new SimpleMethodInvocation(endpoints, Endpoints.class.getMethod("spel", Integer.class), 1);
+        policyInvocation = new SimpleMethodInvocation(endpoints, Endpoints.class.getMethod("policy", Integer.class), 1);
+    }
+
+    @Benchmark
+    public AuthorizationDecision preAuthorizeSpel() {
+        return spelManager.check(authentication, spelInvocation);
+    }
+
+    @Benchmark
+    public AuthorizationDecision accessPolicy() {
+        return policyManager.check(authentication, policyInvocation);
+    }
+
+    public static class Endpoints {
+
+        @PreAuthorize("#userId == principal.id or hasRole('ADMIN')")
+        public void spel(Integer userId) {
+        }
+
+        @AccessPolicy(owner = AccessPolicy.Ownership.USER, param = "userId")
+        public void policy(Integer userId) {
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.userservise.app.security.filter;
+
+import com.userservise.app.security.model.CustomUserDetails;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Run with {@code -prof gc} to compare {@code gc.alloc.rate.norm} (bytes per request) against
+ * the token-based authentication the filter used to build.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtAuthenticationFilterBenchmark {
+
+    private final JwtAuthenticationFilter filter = new JwtAuthenticationFilter();
+    private final TokenAuthenticationFilter tokenFilter = new TokenAuthenticationFilter();
+    private final MockHttpServletResponse response = new MockHttpServletResponse();
+    private final FilterChain chain = (request, response) -> { };
+
+    private MockHttpServletRequest authenticated;
+    private MockHttpServletRequest anonymous;
+
+    @Setup
+    public void setUp() {
+        authenticated = new MockHttpServletRequest("GET", "/api/user/1001");
+        authenticated.addHeader("X-Is-Valid", "true");
+        authenticated.addHeader("X-User-Id", "1001");
+        authenticated.addHeader("X-Role", "USER");
+
+        anonymous = new MockHttpServletRequest("GET", "/api/user/1001");
+    }
+
+    @Benchmark
+    public void authenticatedRequest(Blackhole blackhole) throws Exception {
+        filter.doFilterInternal(authenticated, response, chain);
+        blackhole.consume(SecurityContextHolder.getContext().getAuthentication());
+        SecurityContextHolder.clearContext();
+    }
+
+    @Benchmark
+    public void tokenAuthenticatedRequest(Blackhole blackhole) throws Exception {
+        tokenFilter.doFilterInternal(authenticated, response, chain);
+        blackhole.consume(SecurityContextHolder.getContext().getAuthentication());
+        SecurityContextHolder.clearContext();
+    }
+
+    @Benchmark
+    public void anonymousRequest(Blackhole blackhole) throws Exception {
+        filter.doFilterInternal(anonymous, response, chain);
+        blackhole.consume(SecurityContextHolder.getContext().getAuthentication());
+    }
+
+    // The filter before trusted-header authentication, kept as the baseline.
+    static class TokenAuthenticationFilter extends OncePerRequestFilter {
+
+        @Override
+        protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+                throws IOException, ServletException {
+            List<GrantedAuthority> authorities = List.of(new SimpleGrantedAuthority("ROLE_" + request.getHeader("X-Role")));
+            CustomUserDetails userDetails = new CustomUserDetails(Long.parseLong(request.getHeader("X-User-Id")),
+                    request.getHeader("X-Role"));
+            SecurityContextHolder.getContext().setAuthentication(
+                    new UsernamePasswordAuthenticationToken(userDetails, null, authorities));
+            chain.doFilter(request, response);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.userservise.app.service;
+
+import com.userservise.app.UserServiceApplication;
+import com.userservise.app.model.dto.CardDto;
+import com.userservise.app.model.entity.User;
+import com.userservise.app.model.enums.ActiveStatus;
+import com.userservise.app.repository.CardRepository;
+import com.userservise.app.repository.UserRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.GenericContainer;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Needs Docker: Postgres and Redis run in containers, like in the integration tests.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CreateCardBenchmark {
+
+    private static final int OWNER_ID = 1;
+    private static final int SEED_OWNER_ID = 2;
+    private static final int SEED_BATCH_SIZE = 1_000;
+
+    // Loading every number would make the largest table roughly 50x slower than the smallest one.
+    @Param({"1000", "10000", "50000"})
+    public int tableSize;
+
+    private PostgreSQLContainer<?> postgres;
+    private GenericContainer<?> redis;
+    private ConfigurableApplicationContext context;
+    private CardService cardService;
+    private CardRepository cardRepository;
+    private Integer createdCardId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        postgres = new PostgreSQLContainer<>("postgres:16")
+                .withDatabaseName("test")
+                .withUsername("test")
+                .withPassword("test");
+        redis = new GenericContainer<>("redis:7")
+                .withExposedPorts(6379);
+        postgres.start();
+        redis.start();
+
+        // Passed as arguments: default properties would lose to application.properties.
+        context = new SpringApplicationBuilder(UserServiceApplication.class)
+                .profiles("test")
+                .run("--server.port=0",
+                        "--spring.datasource.url=" + postgres.getJdbcUrl(),
+                        "--spring.datasource.username=" + postgres.getUsername(),
+                        "--spring.datasource.password=" + postgres.getPassword(),
+                        "--spring.data.redis.host=" + redis.getHost(),
+                        "--spring.data.redis.port=" + redis.getMappedPort(6379));
+        cardService = context.getBean(CardService.class);
+        cardRepository = context.getBean(CardRepository.class);
+
+        UserRepository userRepository = context.getBean(UserRepository.class);
+        userRepository.saveAndFlush(user(OWNER_ID, "benchmarkOwner@mail.com"));
+        userRepository.saveAndFlush(user(SEED_OWNER_ID, "benchmarkSeed@mail.com"));
+        seedCards(context.getBean(JdbcTemplate.class));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+        redis.stop();
+        postgres.stop();
+    }
+
+    // The owner may hold only a few cards, so each one is removed before the next call.
+    @TearDown(Level.Invocation)
+    public void deleteCreatedCard() {
+        cardRepository.deleteById(createdCardId);
+    }
+
+    @Benchmark
+    public CardDto createCard() {
+        CardDto card = cardService.createCard(OWNER_ID);
+        createdCardId = card.getId();
+
+        return card;
+    }
+
+    private void seedCards(JdbcTemplate jdbcTemplate) {
+        Date expirationDate = Date.valueOf(LocalDate.now().plusYears(4));
+        for (int seeded = 0; seeded < tableSize; ) {
+            List<Object[]> rows = new ArrayList<>(SEED_BATCH_SIZE);
+            for (int i = 0; i < SEED_BATCH_SIZE && seeded < tableSize; i++, seeded++) {
+                rows.add(new Object[]{SEED_OWNER_ID, String.format("9%015d", seeded),
+                        "Seed Holder", expirationDate, ActiveStatus.INACTIVE.name()});
+            }
+            jdbcTemplate.batchUpdate(
+                    "INSERT INTO user_service.payment_cards (user_id, number, holder, expiration_date, active) VALUES (?, ?, ?, ?, ?)",
+                    rows);
+        }
+    }
+
+    private static User user(int userId, String email) {
+        User user = new User();
+        user.setUserId(userId);
+        user.setName("Bench");
+        user.setSurname("User");
+        user.setEmail(email);
+        user.setBirthDate(LocalDate.of(2000, 1, 1));
+        user.setActive(ActiveStatus.ACTIVE);
+
+        return user;
+    }
+}
@@ -0,0 +1,25 @@
+package com.userservise.app.utils;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CardNumberGeneratorBenchmark {
+
+    @Benchmark
+    public String generate() {
+        return CardNumberGenerator.generate();
+    }
+
+    // The generator shares one java.util.Random, so contention shows up only with several threads.
+    @Benchmark
+    @Threads(4)
+    public String generateContended() {
+        return CardNumberGenerator.generate();
+    }
+}
@@ -0,0 +1,34 @@
+package com.userservise.app.cache;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@Getter
+@AllArgsConstructor
+public class CacheInvalidationMessage {
+
+    public static final String ALL_KEYS = "*";
+
+    private static final char SEPARATOR = '|';
+
+    private final String origin;
+    private final String cacheName;
+    private final String key;
+
+    public boolean isClear() {
+        return ALL_KEYS.equals(key);
+    }
+
+    public String encode() {
+        return origin + SEPARATOR + cacheName + SEPARATOR + key;
+    }
+
+    public static CacheInvalidationMessage decode(String raw) {
+        int first = raw.indexOf(SEPARATOR);
+        int second = raw.indexOf(SEPARATOR, first + 1);
+        if (first < 0 || second < 0)
+            throw new IllegalArgumentException("Malformed cache invalidation message: " + raw);
+
+        return new CacheInvalidationMessage(raw.substring(0, first), raw.substring(first + 1, second), raw.substring(second + 1));
+    }
+}
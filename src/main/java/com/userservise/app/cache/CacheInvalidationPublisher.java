@@ -0,0 +1,7 @@
+package com.userservise.app.cache;
+
+@FunctionalInterface
+public interface CacheInvalidationPublisher {
+
+    void publish(String cacheName, String key);
+}
@@ -0,0 +1,66 @@
+package com.userservise.app.cache;
+
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Redis side of single-flight loading: a short-lived lock per cache key so only one node runs the
+ * loader after an entry expires, and the decision to refresh a hot entry early from its remaining TTL.
+ */
+public class CacheLoadCoordinator {
+
+    private static final String LOCK_SUFFIX = "::load-lock";
+
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    private final StringRedisTemplate redisTemplate;
+    private final Duration lockTtl;
+    private final Duration lockWait;
+    private final double earlyRefreshBeta;
+
+    public CacheLoadCoordinator(StringRedisTemplate redisTemplate, Duration lockTtl, Duration lockWait, double earlyRefreshBeta) {
+        this.redisTemplate = redisTemplate;
+        this.lockTtl = lockTtl;
+        this.lockWait = lockWait;
+        this.earlyRefreshBeta = earlyRefreshBeta;
+    }
+
+    Duration getLockWait() {
+        return lockWait;
+    }
+
+    /**
+     * @return the token to release the lock with, or {@code null} if another node holds it
+     */
+    String tryLock(String redisKey) {
+        String token = UUID.randomUUID().toString();
+        Boolean acquired = redisTemplate.opsForValue().setIfAbsent(redisKey + LOCK_SUFFIX, token, lockTtl);
+        return Boolean.TRUE.equals(acquired) ? token : null;
+    }
+
+    void unlock(String redisKey, String token) {
+        redisTemplate.execute(RELEASE_SCRIPT, List.of(redisKey + LOCK_SUFFIX), token);
+    }
+
+    /**
+     * Probabilistic early expiration (XFetch): the closer the entry is to expiring and the longer
+     * it takes to load, the more likely a read is chosen to reload it ahead of time.
+     *
+     * @param remainingMillis the entry's remaining TTL, read together with its value
+     */
+    boolean shouldRefreshEarly(long remainingMillis, long averageLoadNanos, double random) {
+        if (earlyRefreshBeta <= 0 || averageLoadNanos <= 0 || remainingMillis < 0)
+            return false;
+
+        double gapNanos = averageLoadNanos * earlyRefreshBeta * -Math.log(random);
+        return gapNanos >= TimeUnit.MILLISECONDS.toNanos(remainingMillis);
+    }
+}
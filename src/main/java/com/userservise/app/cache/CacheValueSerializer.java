@@ -0,0 +1,167 @@
+package com.userservise.app.cache;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Redis value codec for cached DTOs. Values are written as {@code [version][flags][payload]}, where
+ * the payload is Smile (binary JSON) or plain JSON and is deflated once it grows past the threshold.
+ * Entries written before the header existed start with '{' or '[' and are still read as JSON;
+ * entries with a version this node does not know are reported as a miss and get re-cached.
+ * <p>
+ * Nodes without this codec cannot read the header, so {@link Format#LEGACY} keeps writing plain
+ * JSON without one until every node in the cluster has been upgraded.
+ */
+public class CacheValueSerializer<T> implements RedisSerializer<T> {
+
+    public enum Format { LEGACY, JSON, SMILE }
+
+    static final byte VERSION = 1;
+    static final byte FLAG_SMILE = 1;
+    static final byte FLAG_DEFLATE = 1 << 1;
+
+    private static final int HEADER_SIZE = 2;
+    private static final int LENGTH_SIZE = Integer.BYTES;
+
+    private static final ObjectMapper JSON_MAPPER = configure(new ObjectMapper());
+    private static final ObjectMapper SMILE_MAPPER = configure(new ObjectMapper(SmileFactory.builder()
+            .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+            .build()));
+
+    private final JavaType type;
+    private final Format format;
+    private final int compressionThreshold;
+
+    public CacheValueSerializer(Class<T> type, Format format, int compressionThreshold) {
+        this(TypeFactory.defaultInstance().constructType(type), format, compressionThreshold);
+    }
+
+    public CacheValueSerializer(JavaType type, Format format, int compressionThreshold) {
+        this.type = type;
+        this.format = format;
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    @Override
+    public byte[] serialize(T value) throws SerializationException {
+        if (value == null)
+            return new byte[0];
+
+        byte[] payload;
+        try {
+            payload = mapper(format).writeValueAsBytes(value);
+        } catch (IOException e) {
+            throw new SerializationException("Could not write cache value: " + e.getMessage(), e);
+        }
+        if (format == Format.LEGACY)
+            return payload;
+
+        byte flags = format == Format.SMILE ? FLAG_SMILE : 0;
+        if (compressionThreshold > 0 && payload.length > compressionThreshold) {
+            byte[] compressed = deflate(payload);
+            if (compressed.length + LENGTH_SIZE < payload.length) {
+                return ByteBuffer.allocate(HEADER_SIZE + LENGTH_SIZE + compressed.length)
+                        .put(VERSION)
+                        .put((byte) (flags | FLAG_DEFLATE))
+                        .putInt(payload.length)
+                        .put(compressed)
+                        .array();
+            }
+        }
+
+        return ByteBuffer.allocate(HEADER_SIZE + payload.length)
+                .put(VERSION)
+                .put(flags)
+                .put(payload)
+                .array();
+    }
+
+    @Override
+    public T deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0)
+            return null;
+
+        try {
+            if (bytes[0] == '{' || bytes[0] == '[')
+                return JSON_MAPPER.readValue(bytes, type);
+
+            if (bytes[0] != VERSION || bytes.length < HEADER_SIZE)
+                return null;
+
+            byte flags = bytes[1];
+            ObjectMapper mapper = (flags & FLAG_SMILE) != 0 ? SMILE_MAPPER : JSON_MAPPER;
+            if ((flags & FLAG_DEFLATE) == 0)
+                return mapper.readValue(bytes, HEADER_SIZE, bytes.length - HEADER_SIZE, type);
+
+            int length = ByteBuffer.wrap(bytes, HEADER_SIZE, LENGTH_SIZE).getInt();
+            byte[] payload = inflate(bytes, HEADER_SIZE + LENGTH_SIZE, length);
+            return mapper.readValue(payload, type);
+        } catch (IOException | DataFormatException e) {
+            throw new SerializationException("Could not read cache value: " + e.getMessage(), e);
+        }
+    }
+
+    private static ObjectMapper mapper(Format format) {
+        return format == Format.SMILE ? SMILE_MAPPER : JSON_MAPPER;
+    }
+
+    private static ObjectMapper configure(ObjectMapper objectMapper) {
+        objectMapper.registerModule(new JavaTimeModule());
+        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+        return objectMapper;
+    }
+
+    private static byte[] deflate(byte[] payload) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(payload);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(payload.length);
+            byte[] buffer = new byte[Math.max(64, payload.length)];
+            while (!deflater.finished()) {
+                int written = deflater.deflate(buffer);
+                out.write(buffer, 0, written);
+            }
+
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] bytes, int offset, int length) throws DataFormatException {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(bytes, offset, bytes.length - offset);
+            byte[] payload = new byte[length];
+            int read = 0;
+            while (read < length && !inflater.finished()) {
+                int inflated = inflater.inflate(payload, read, length - read);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+                    throw new DataFormatException("truncated cache value");
+                read += inflated;
+            }
+            if (read != length)
+                throw new DataFormatException("expected " + length + " bytes but got " + read);
+
+            return payload;
+        } finally {
+            inflater.end();
+        }
+    }
+}
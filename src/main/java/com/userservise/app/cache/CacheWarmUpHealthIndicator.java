@@ -0,0 +1,27 @@
+package com.userservise.app.cache;
+
+import com.userservise.app.model.response.CacheWarmUpStatus;
+import com.userservise.app.service.CacheWarmUpService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor
+public class CacheWarmUpHealthIndicator implements HealthIndicator {
+
+    private final CacheWarmUpService cacheWarmUpService;
+
+    @Override
+    public Health health() {
+        CacheWarmUpStatus status = cacheWarmUpService.getStatus();
+        Health.Builder builder = status.isReady() ? Health.up() : Health.outOfService();
+
+        return builder
+                .withDetail("state", status.getState())
+                .withDetail("loadedUsers", status.getLoadedUsers())
+                .withDetail("targetUsers", status.getTargetUsers())
+                .build();
+    }
+}
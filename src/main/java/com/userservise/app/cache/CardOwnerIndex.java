@@ -0,0 +1,98 @@
+package com.userservise.app.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.userservise.app.repository.CardRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Card id to owner user id lookup used by authorization checks. Ownership never changes and
+ * card ids are never reused, so entries only have to be added on create and dropped on delete;
+ * an entry left behind on another node for a deleted card cannot grant access to anything.
+ * The same holds for Redis, so while it is unavailable lookups go to the database and
+ * writes to the shared index are skipped.
+ */
+@Component
+public class CardOwnerIndex {
+
+    private static final String INDEX_NAME = "cardOwners";
+    private static final String KEY_PREFIX = "card-owners:";
+
+    // Small hashes stay listpack-encoded in Redis, which keeps each entry to a few bytes.
+    private static final int BUCKET_SIZE = 100;
+
+    private final CardRepository cardRepository;
+    private final HashOperations<String, String, String> redisHash;
+    private final RedisCircuitBreaker circuitBreaker;
+    private final Cache<Integer, Integer> localIndex;
+
+    public CardOwnerIndex(CardRepository cardRepository,
+                          StringRedisTemplate redisTemplate,
+                          RedisCircuitBreaker circuitBreaker,
+                          @Value("${cache.card-owner.maximum-size:100000}") long maximumSize) {
+        this.cardRepository = cardRepository;
+        this.redisHash = redisTemplate.opsForHash();
+        this.circuitBreaker = circuitBreaker;
+        this.localIndex = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .build();
+    }
+
+    public Optional<Integer> findOwnerId(int cardId) {
+        Integer ownerId = localIndex.getIfPresent(cardId);
+        if (ownerId != null)
+            return Optional.of(ownerId);
+
+        String remoteOwnerId = circuitBreaker.execute(INDEX_NAME, "get",
+                () -> redisHash.get(bucketKey(cardId), String.valueOf(cardId)), () -> null);
+        if (remoteOwnerId != null) {
+            ownerId = Integer.valueOf(remoteOwnerId);
+            localIndex.put(cardId, ownerId);
+            return Optional.of(ownerId);
+        }
+
+        Optional<Integer> storedOwnerId = cardRepository.findOwnerUserIdById(cardId);
+        storedOwnerId.ifPresent(id -> register(cardId, id));
+
+        return storedOwnerId;
+    }
+
+    public void register(int cardId, int ownerId) {
+        localIndex.put(cardId, ownerId);
+        circuitBreaker.execute(INDEX_NAME, "put",
+                () -> redisHash.put(bucketKey(cardId), String.valueOf(cardId), String.valueOf(ownerId)), () -> {
+                });
+    }
+
+    public void remove(int cardId) {
+        localIndex.invalidate(cardId);
+        circuitBreaker.execute(INDEX_NAME, "delete",
+                () -> redisHash.delete(bucketKey(cardId), String.valueOf(cardId)), () -> {
+                });
+    }
+
+    public void removeAll(Collection<Integer> cardIds) {
+        if (cardIds.isEmpty())
+            return;
+
+        localIndex.invalidateAll(cardIds);
+        Map<String, List<Integer>> buckets = cardIds.stream()
+                .collect(Collectors.groupingBy(CardOwnerIndex::bucketKey));
+        buckets.forEach((bucketKey, ids) -> circuitBreaker.execute(INDEX_NAME, "delete",
+                () -> redisHash.delete(bucketKey, ids.stream().map(String::valueOf).toArray()), () -> {
+                }));
+    }
+
+    private static String bucketKey(int cardId) {
+        return KEY_PREFIX + cardId / BUCKET_SIZE;
+    }
+}
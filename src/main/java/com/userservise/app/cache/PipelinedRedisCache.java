@@ -0,0 +1,38 @@
+package com.userservise.app.cache;
+
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+
+import java.time.Duration;
+
+/**
+ * {@link RedisCache} that exposes its key and value encoding, so writes buffered during a
+ * transaction or a batch of lookups can be sent to Redis in a single round trip instead of one each.
+ */
+public class PipelinedRedisCache extends RedisCache {
+
+    PipelinedRedisCache(String name, RedisCacheWriter cacheWriter, RedisCacheConfiguration cacheConfiguration) {
+        super(name, cacheWriter, cacheConfiguration);
+    }
+
+    String redisKey(Object key) {
+        return createCacheKey(key);
+    }
+
+    byte[] rawKey(Object key) {
+        return serializeCacheKey(createCacheKey(key));
+    }
+
+    byte[] rawValue(Object value) {
+        return serializeCacheValue(preProcessCacheValue(value));
+    }
+
+    Object cacheValue(byte[] rawValue) {
+        return rawValue != null ? deserializeCacheValue(rawValue) : null;
+    }
+
+    Duration timeToLive(Object key, Object value) {
+        return getCacheConfiguration().getTtlFunction().getTimeToLive(key, value);
+    }
+}
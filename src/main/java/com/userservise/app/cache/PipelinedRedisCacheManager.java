@@ -0,0 +1,22 @@
+package com.userservise.app.cache;
+
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+
+import java.util.Map;
+
+public class PipelinedRedisCacheManager extends RedisCacheManager {
+
+    public PipelinedRedisCacheManager(RedisCacheWriter cacheWriter,
+                                      RedisCacheConfiguration defaultCacheConfiguration,
+                                      Map<String, RedisCacheConfiguration> initialCacheConfigurations) {
+        super(cacheWriter, defaultCacheConfiguration, initialCacheConfigurations);
+    }
+
+    @Override
+    protected RedisCache createRedisCache(String name, RedisCacheConfiguration cacheConfiguration) {
+        return new PipelinedRedisCache(name, getCacheWriter(), cacheConfiguration != null ? cacheConfiguration : getDefaultCacheConfiguration());
+    }
+}
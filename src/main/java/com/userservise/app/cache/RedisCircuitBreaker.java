@@ -0,0 +1,146 @@
+package com.userservise.app.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Stops calling Redis after a run of consecutive failures. While open, cache operations go
+ * straight to their fallback instead of each waiting for a command timeout; after the open
+ * interval a single call is let through to probe whether Redis is back.
+ */
+@Slf4j
+public class RedisCircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final Duration openDuration;
+    private final Clock clock;
+    private final MeterRegistry meterRegistry;
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicLong openedAt = new AtomicLong();
+    private final List<Runnable> closeListeners = new CopyOnWriteArrayList<>();
+    private final ConcurrentMap<String, Counter> fallbacks = new ConcurrentHashMap<>();
+
+    public RedisCircuitBreaker(int failureThreshold, Duration openDuration, MeterRegistry meterRegistry) {
+        this(failureThreshold, openDuration, Clock.systemUTC(), meterRegistry);
+    }
+
+    public RedisCircuitBreaker(int failureThreshold, Duration openDuration, Clock clock, MeterRegistry meterRegistry) {
+        this.failureThreshold = failureThreshold;
+        this.openDuration = openDuration;
+        this.clock = clock;
+        this.meterRegistry = meterRegistry;
+
+        Gauge.builder("cache.redis.circuit.state", state, current -> current.get().ordinal())
+                .description("0 = closed, 1 = open, 2 = half-open")
+                .register(meterRegistry);
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    /**
+     * Runs {@code action} against Redis, or {@code fallback} when the circuit is open or Redis
+     * could not be reached.
+     */
+    public <T> T execute(String cacheName, String operation, Supplier<T> action, Supplier<T> fallback) {
+        if (!tryAcquire()) {
+            fallbackCounter(cacheName, operation, "open").increment();
+            return fallback.get();
+        }
+
+        T result;
+        try {
+            result = action.get();
+        } catch (DataAccessException e) {
+            onFailure(e);
+            fallbackCounter(cacheName, operation, "error").increment();
+            return fallback.get();
+        } catch (RuntimeException e) {
+            // Redis answered; the failure is ours (e.g. serialization) and goes to the cache error handler.
+            onSuccess();
+            throw e;
+        }
+
+        onSuccess();
+        return result;
+    }
+
+    public void execute(String cacheName, String operation, Runnable action, Runnable fallback) {
+        execute(cacheName, operation, () -> {
+            action.run();
+            return null;
+        }, () -> {
+            fallback.run();
+            return null;
+        });
+    }
+
+    /**
+     * Whether calls currently reach Redis. Does not use up the half-open probe.
+     */
+    public boolean isClosed() {
+        return state.get() == State.CLOSED;
+    }
+
+    void onClose(Runnable listener) {
+        closeListeners.add(listener);
+    }
+
+    private boolean tryAcquire() {
+        State current = state.get();
+        if (current == State.CLOSED)
+            return true;
+        if (current == State.HALF_OPEN)
+            return false;
+
+        // Only the caller that moves the circuit to half-open gets to probe.
+        return clock.millis() - openedAt.get() >= openDuration.toMillis()
+                && state.compareAndSet(State.OPEN, State.HALF_OPEN);
+    }
+
+    private void onSuccess() {
+        if (consecutiveFailures.get() != 0)
+            consecutiveFailures.set(0);
+        if (state.get() != State.CLOSED && state.getAndSet(State.CLOSED) != State.CLOSED) {
+            log.info("Redis is reachable again, closing cache circuit");
+            closeListeners.forEach(Runnable::run);
+        }
+    }
+
+    private void onFailure(RuntimeException e) {
+        if (state.get() == State.HALF_OPEN || consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            openedAt.set(clock.millis());
+            if (state.getAndSet(State.OPEN) != State.OPEN)
+                log.warn("Opening cache circuit for {}: {}", openDuration, e.getMessage());
+        }
+    }
+
+    private Counter fallbackCounter(String cacheName, String operation, String reason) {
+        return fallbacks.computeIfAbsent(cacheName + '|' + operation + '|' + reason, id -> Counter.builder("cache.redis.fallbacks")
+                .tag("cache", cacheName)
+                .tag("operation", operation)
+                .tag("reason", reason)
+                .register(meterRegistry));
+    }
+}
@@ -0,0 +1,57 @@
+package com.userservise.app.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.interceptor.CacheErrorHandler;
+
+/**
+ * Treats any cache failure that gets past the circuit breaker as a miss or a skipped write,
+ * so a broken cache costs a database round trip instead of failing the request.
+ */
+@Slf4j
+public class ResilientCacheErrorHandler implements CacheErrorHandler {
+
+    private final MeterRegistry meterRegistry;
+
+    public ResilientCacheErrorHandler(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void handleCacheGetError(RuntimeException exception, Cache cache, Object key) {
+        record(exception, cache, "get", key);
+        // The value may be unreadable (e.g. an incompatible format); drop it so the next read reloads.
+        try {
+            cache.evict(key);
+        } catch (RuntimeException e) {
+            log.debug("Could not evict unreadable entry {} from cache {}: {}", key, cache.getName(), e.getMessage());
+        }
+    }
+
+    @Override
+    public void handleCachePutError(RuntimeException exception, Cache cache, Object key, Object value) {
+        record(exception, cache, "put", key);
+    }
+
+    @Override
+    public void handleCacheEvictError(RuntimeException exception, Cache cache, Object key) {
+        record(exception, cache, "evict", key);
+    }
+
+    @Override
+    public void handleCacheClearError(RuntimeException exception, Cache cache) {
+        record(exception, cache, "clear", "*");
+    }
+
+    private void record(RuntimeException exception, Cache cache, String operation, Object key) {
+        log.warn("Cache {} failed on {} {}: {}", operation, cache.getName(), key, exception.getMessage());
+        Counter.builder("cache.errors")
+                .tag("cache", cache.getName())
+                .tag("operation", operation)
+                .tag("exception", exception.getClass().getSimpleName())
+                .register(meterRegistry)
+                .increment();
+    }
+}
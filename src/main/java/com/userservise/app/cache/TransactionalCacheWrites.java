@@ -0,0 +1,82 @@
+package com.userservise.app.cache;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache puts and evictions made inside a transaction. Nothing reaches either tier until the
+ * transaction commits, so a rollback leaves the cache untouched; repeated writes to one key
+ * collapse into the last one.
+ */
+class TransactionalCacheWrites implements TransactionSynchronization {
+
+    record Write(TwoLevelCache cache, Object key, Object value, boolean evict) {
+    }
+
+    private record WriteKey(String cacheName, String key) {
+    }
+
+    private final TwoLevelCacheManager cacheManager;
+    private final Map<WriteKey, Write> writes = new LinkedHashMap<>();
+
+    private TransactionalCacheWrites(TwoLevelCacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    /**
+     * The buffer of the current transaction, or {@code null} when there is none and writes
+     * should go straight to the cache.
+     */
+    static TransactionalCacheWrites current(TwoLevelCacheManager cacheManager) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()
+                || !TransactionSynchronizationManager.isSynchronizationActive())
+            return null;
+
+        TransactionalCacheWrites writes = (TransactionalCacheWrites) TransactionSynchronizationManager.getResource(cacheManager);
+        if (writes == null) {
+            writes = new TransactionalCacheWrites(cacheManager);
+            TransactionSynchronizationManager.bindResource(cacheManager, writes);
+            TransactionSynchronizationManager.registerSynchronization(writes);
+        }
+
+        return writes;
+    }
+
+    void put(TwoLevelCache cache, Object key, Object value) {
+        add(new Write(cache, key, value, false));
+    }
+
+    void evict(TwoLevelCache cache, Object key) {
+        add(new Write(cache, key, null, true));
+    }
+
+    private void add(Write write) {
+        WriteKey writeKey = new WriteKey(write.cache().getName(), String.valueOf(write.key()));
+        writes.remove(writeKey);
+        writes.put(writeKey, write);
+    }
+
+    @Override
+    public void suspend() {
+        TransactionSynchronizationManager.unbindResource(cacheManager);
+    }
+
+    @Override
+    public void resume() {
+        TransactionSynchronizationManager.bindResource(cacheManager, this);
+    }
+
+    @Override
+    public void afterCommit() {
+        if (!writes.isEmpty())
+            cacheManager.apply(writes.values());
+    }
+
+    @Override
+    public void afterCompletion(int status) {
+        TransactionSynchronizationManager.unbindResourceIfPossible(cacheManager);
+    }
+}
@@ -0,0 +1,477 @@
+package com.userservise.app.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.cache.support.AbstractValueAdaptingCache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * In-process L1 (Caffeine) in front of a shared L2 (Redis). Writes go to both tiers and are
+ * announced to the other nodes, which drop the key from their own L1. Inside a transaction,
+ * puts and evictions are held back until it commits. When Redis cannot be reached, reads fall
+ * back to L1 and the loader, and writes that missed Redis are repaired once it is back.
+ */
+public class TwoLevelCache extends AbstractValueAdaptingCache {
+
+    private static final long REMOTE_WAIT_LOADS = 3;
+    private static final long REMOTE_WAIT_POLLS = 5;
+    private static final long MIN_REMOTE_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long MAX_REMOTE_POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(25);
+    private static final int LOAD_AVERAGE_WEIGHT = 8;
+    private static final int MAX_RECENT_INVALIDATIONS = 10_000;
+    private static final String LOCAL_LOAD = "local";
+
+    private final String name;
+    private final Cache<String, Object> localCache;
+    private final org.springframework.cache.Cache remoteCache;
+    private final TwoLevelCacheManager cacheManager;
+    private final CacheLoadCoordinator loadCoordinator;
+    private final RedisCircuitBreaker circuitBreaker;
+
+    private final ConcurrentMap<String, CompletableFuture<Object>> loads = new ConcurrentHashMap<>();
+    private final AtomicLong averageLoadNanos = new AtomicLong();
+
+    // Bumped on every local invalidation; an L2 read that races with one must not refill L1.
+    private final AtomicLong generation = new AtomicLong();
+
+    // Keys written or invalidated here or on another node, stamped with the manager's invalidation
+    // clock so a preload or a load can tell which ones changed after it read them. A clear, or a stamp pushed out of the
+    // bounded map, raises forgottenUpTo: anything read before it counts as invalidated.
+    private final AtomicLong forgottenUpTo = new AtomicLong();
+    private final Cache<String, Long> recentInvalidations = Caffeine.newBuilder()
+            .maximumSize(MAX_RECENT_INVALIDATIONS)
+            .evictionListener((String key, Long stamp, RemovalCause cause) -> forgottenUpTo.accumulateAndGet(stamp, Math::max))
+            .build();
+
+    private final Counter localHits;
+    private final Counter remoteHits;
+    private final Counter misses;
+    private final Counter coalescedLoads;
+    private final Counter remoteCoalescedLoads;
+    private final Counter earlyRefreshes;
+    private final Timer loadTimer;
+
+    public TwoLevelCache(String name,
+                         Cache<String, Object> localCache,
+                         org.springframework.cache.Cache remoteCache,
+                         TwoLevelCacheManager cacheManager,
+                         CacheLoadCoordinator loadCoordinator,
+                         RedisCircuitBreaker circuitBreaker,
+                         MeterRegistry meterRegistry) {
+        super(false);
+        this.name = name;
+        this.localCache = localCache;
+        this.remoteCache = remoteCache;
+        this.cacheManager = cacheManager;
+        this.loadCoordinator = loadCoordinator;
+        this.circuitBreaker = circuitBreaker;
+        this.localHits = lookupCounter(meterRegistry, "l1_hit");
+        this.remoteHits = lookupCounter(meterRegistry, "l2_hit");
+        this.misses = lookupCounter(meterRegistry, "miss");
+        this.coalescedLoads = loadCounter(meterRegistry, "coalesced");
+        this.remoteCoalescedLoads = loadCounter(meterRegistry, "coalesced_remote");
+        this.earlyRefreshes = loadCounter(meterRegistry, "early_refresh");
+        this.loadTimer = Timer.builder("cache.loads.duration")
+                .tag("cache", name)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return this;
+    }
+
+    public org.springframework.cache.Cache getRemoteCache() {
+        return remoteCache;
+    }
+
+    @Override
+    protected Object lookup(Object key) {
+        String localKey = localKey(key);
+        Object value = localCache.getIfPresent(localKey);
+        if (value != null) {
+            localHits.increment();
+            return value;
+        }
+
+        long observedGeneration = generation.get();
+        ValueWrapper remoteValue = remoteGet(key);
+        if (remoteValue == null || remoteValue.get() == null) {
+            misses.increment();
+            return null;
+        }
+
+        remoteHits.increment();
+        if (generation.get() == observedGeneration)
+            localCache.put(localKey, remoteValue.get());
+
+        return remoteValue.get();
+    }
+
+    /**
+     * Single-flight read-through used by {@code @Cacheable(sync = true)}. Concurrent misses for a key
+     * share one load on this node and, through a Redis lock, across nodes; a hot entry may also be
+     * reloaded shortly before it expires while readers keep getting the current value.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        String localKey = localKey(key);
+        Object value = localCache.getIfPresent(localKey);
+        if (value != null) {
+            localHits.increment();
+            return (T) fromStoreValue(value);
+        }
+
+        long observedGeneration = generation.get();
+        TwoLevelCacheManager.RemoteEntry remoteEntry = remoteGetWithTtl(key);
+        Object remoteValue = remoteEntry.value();
+        if (remoteValue != null) {
+            remoteHits.increment();
+            if (!shouldRefreshEarly(remoteEntry.ttlMillis())) {
+                if (generation.get() == observedGeneration)
+                    localCache.put(localKey, remoteValue);
+                return (T) fromStoreValue(remoteValue);
+            }
+
+            earlyRefreshes.increment();
+            return (T) fromStoreValue(loadOnce(key, valueLoader, remoteValue));
+        }
+
+        misses.increment();
+        return (T) fromStoreValue(loadOnce(key, valueLoader, null));
+    }
+
+    /**
+     * Batch read-through: L1 first, one {@code MGET} for the rest and a single {@code loader} call
+     * for whatever is still missing. Loaded values are written back to both tiers without
+     * overwriting newer ones; keys the loader does not return are absent from the result.
+     */
+    @SuppressWarnings("unchecked")
+    public <K, V> Map<K, V> getAll(Collection<K> keys, Function<Set<K>, Map<K, V>> loader) {
+        Map<K, V> result = new HashMap<>();
+        List<K> remoteKeys = new ArrayList<>();
+        for (K key : new LinkedHashSet<>(keys)) {
+            Object value = localCache.getIfPresent(localKey(key));
+            if (value != null) {
+                localHits.increment();
+                result.put(key, (V) fromStoreValue(value));
+            } else {
+                remoteKeys.add(key);
+            }
+        }
+        if (remoteKeys.isEmpty())
+            return result;
+
+        long observedGeneration = generation.get();
+        List<Object> remoteValues = remoteGetAll(remoteKeys);
+        boolean unchanged = generation.get() == observedGeneration;
+        Set<K> missingKeys = new LinkedHashSet<>();
+        for (int i = 0; i < remoteKeys.size(); i++) {
+            K key = remoteKeys.get(i);
+            Object value = remoteValues.get(i);
+            if (value == null) {
+                misses.increment();
+                missingKeys.add(key);
+                continue;
+            }
+
+            remoteHits.increment();
+            if (unchanged)
+                localCache.put(localKey(key), value);
+            result.put(key, (V) fromStoreValue(value));
+        }
+        if (missingKeys.isEmpty())
+            return result;
+
+        long loadGeneration = generation.get();
+        long start = System.nanoTime();
+        Map<K, V> loaded = loader.apply(missingKeys);
+        loadTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        cacheManager.backfill(this, loaded);
+        boolean fillLocal = generation.get() == loadGeneration;
+        loaded.forEach((key, value) -> {
+            if (fillLocal)
+                localCache.put(localKey(key), toStoreValue(value));
+            result.put(key, value);
+        });
+
+        return result;
+    }
+
+    private List<Object> remoteGetAll(List<?> keys) {
+        if (remoteCache instanceof PipelinedRedisCache pipelinedCache)
+            return circuitBreaker.execute(name, "mget", () -> cacheManager.multiGet(pipelinedCache, keys),
+                    () -> Collections.nCopies(keys.size(), null));
+
+        List<Object> values = new ArrayList<>(keys.size());
+        for (Object key : keys) {
+            ValueWrapper value = remoteGet(key);
+            values.add(value != null ? value.get() : null);
+        }
+
+        return values;
+    }
+
+    private Object loadOnce(Object key, Callable<?> valueLoader, Object currentValue) {
+        String localKey = localKey(key);
+        CompletableFuture<Object> load = new CompletableFuture<>();
+        CompletableFuture<Object> inFlight = loads.putIfAbsent(localKey, load);
+        if (inFlight != null) {
+            if (currentValue != null)
+                return currentValue;
+
+            coalescedLoads.increment();
+            return awaitLoad(inFlight);
+        }
+
+        try {
+            Object loaded = loadAcrossNodes(key, valueLoader, currentValue);
+            load.complete(loaded);
+            return loaded;
+        } catch (Throwable e) {
+            load.completeExceptionally(e);
+            throw e;
+        } finally {
+            loads.remove(localKey, load);
+        }
+    }
+
+    private Object loadAcrossNodes(Object key, Callable<?> valueLoader, Object currentValue) {
+        // With the circuit open there is no one to coordinate with, so every node loads on its own.
+        String redisKey = circuitBreaker.isClosed() && remoteCache instanceof PipelinedRedisCache pipelinedCache
+                ? pipelinedCache.redisKey(key)
+                : null;
+        // If Redis fails while taking the lock there is nobody to coordinate with either; load locally.
+        String token = redisKey != null
+                ? circuitBreaker.execute(name, "lock", () -> loadCoordinator.tryLock(redisKey), () -> LOCAL_LOAD)
+                : null;
+        if (redisKey != null && token == null) {
+            if (currentValue != null)
+                return currentValue;
+
+            Object loadedElsewhere = awaitRemote(key);
+            if (loadedElsewhere != null) {
+                remoteCoalescedLoads.increment();
+                localCache.put(localKey(key), loadedElsewhere);
+                return loadedElsewhere;
+            }
+        }
+
+        try {
+            long readAt = cacheManager.invalidationClock();
+            long start = System.nanoTime();
+            Object loaded;
+            try {
+                loaded = valueLoader.call();
+            } catch (Exception e) {
+                throw new ValueRetrievalException(key, valueLoader, e);
+            }
+            recordLoad(System.nanoTime() - start);
+
+            // A write committed while the loader ran is already in both tiers and must not be replaced by
+            // the row read before it. One landing between this check and the put still lasts until its TTL.
+            if (invalidatedSince(key, readAt))
+                return toStoreValue(loaded);
+
+            // A freshly loaded value is new to every node, so there is nothing to invalidate elsewhere.
+            circuitBreaker.execute(name, "put", () -> remoteCache.put(key, loaded), () -> {
+            });
+            localCache.put(localKey(key), toStoreValue(loaded));
+
+            return toStoreValue(loaded);
+        } finally {
+            if (token != null && !LOCAL_LOAD.equals(token))
+                circuitBreaker.execute(name, "unlock", () -> loadCoordinator.unlock(redisKey, token), () -> {
+                });
+        }
+    }
+
+    // Until a load has been timed there is nothing to refresh early for, so the TTL is not read.
+    private TwoLevelCacheManager.RemoteEntry remoteGetWithTtl(Object key) {
+        if (remoteCache instanceof PipelinedRedisCache pipelinedCache && averageLoadNanos.get() > 0)
+            return circuitBreaker.execute(name, "get", () -> cacheManager.getWithTtl(pipelinedCache, key),
+                    () -> TwoLevelCacheManager.RemoteEntry.MISSING);
+
+        ValueWrapper remoteValue = remoteGet(key);
+        return remoteValue != null
+                ? new TwoLevelCacheManager.RemoteEntry(remoteValue.get(), -1)
+                : TwoLevelCacheManager.RemoteEntry.MISSING;
+    }
+
+    private boolean shouldRefreshEarly(long remainingMillis) {
+        return remainingMillis >= 0 && loadCoordinator.shouldRefreshEarly(remainingMillis, averageLoadNanos.get(),
+                ThreadLocalRandom.current().nextDouble());
+    }
+
+    private Object awaitLoad(CompletableFuture<Object> inFlight) {
+        try {
+            return inFlight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause)
+                throw cause;
+            throw e;
+        }
+    }
+
+    // Another node holds the load lock. Its load should take about as long as one here, so wait a
+    // few of those (never more than the lock wait) before giving up and loading locally.
+    private Object awaitRemote(Object key) {
+        long averageLoad = averageLoadNanos.get();
+        long waitNanos = loadCoordinator.getLockWait().toNanos();
+        if (averageLoad > 0)
+            waitNanos = Math.min(waitNanos, averageLoad * REMOTE_WAIT_LOADS);
+        long pollNanos = Math.clamp(waitNanos / REMOTE_WAIT_POLLS, MIN_REMOTE_POLL_NANOS, MAX_REMOTE_POLL_NANOS);
+
+        long deadline = System.nanoTime() + waitNanos;
+        while (System.nanoTime() < deadline && circuitBreaker.isClosed()) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(pollNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+
+            ValueWrapper remoteValue = remoteGet(key);
+            if (remoteValue != null && remoteValue.get() != null)
+                return remoteValue.get();
+        }
+
+        return null;
+    }
+
+    private void recordLoad(long nanos) {
+        loadTimer.record(nanos, TimeUnit.NANOSECONDS);
+        averageLoadNanos.accumulateAndGet(nanos, (average, sample) ->
+                average == 0 ? sample : average + (sample - average) / LOAD_AVERAGE_WEIGHT);
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        Object storeValue = toStoreValue(value);
+        TransactionalCacheWrites writes = TransactionalCacheWrites.current(cacheManager);
+        if (writes != null) {
+            writes.put(this, key, value);
+            return;
+        }
+
+        markInvalidated(localKey(key));
+        circuitBreaker.execute(name, "put", () -> remoteCache.put(key, value), () -> cacheManager.markStale(this, key));
+        localCache.put(localKey(key), storeValue);
+        cacheManager.publish(name, localKey(key));
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        ValueWrapper existing = circuitBreaker.execute(name, "putIfAbsent", () -> remoteCache.putIfAbsent(key, value), () -> null);
+        Object current = existing != null && existing.get() != null ? existing.get() : value;
+        localCache.put(localKey(key), toStoreValue(current));
+
+        return existing;
+    }
+
+    @Override
+    public void evict(Object key) {
+        TransactionalCacheWrites writes = TransactionalCacheWrites.current(cacheManager);
+        if (writes != null) {
+            writes.evict(this, key);
+            return;
+        }
+
+        markInvalidated(localKey(key));
+        circuitBreaker.execute(name, "evict", () -> remoteCache.evict(key), () -> cacheManager.markStale(this, key));
+        evictLocal(localKey(key));
+        cacheManager.publish(name, localKey(key));
+    }
+
+    @Override
+    public void clear() {
+        markCleared();
+        circuitBreaker.execute(name, "clear", remoteCache::clear, () -> cacheManager.markStale(this));
+        clearLocal();
+        cacheManager.publish(name, CacheInvalidationMessage.ALL_KEYS);
+    }
+
+    private ValueWrapper remoteGet(Object key) {
+        return circuitBreaker.execute(name, "get", () -> remoteCache.get(key), () -> null);
+    }
+
+    void putLocal(Object key, Object value) {
+        localCache.put(localKey(key), toStoreValue(value));
+    }
+
+    void evictLocal(String localKey) {
+        generation.incrementAndGet();
+        markInvalidated(localKey);
+        localCache.invalidate(localKey);
+    }
+
+    void clearLocal() {
+        generation.incrementAndGet();
+        markCleared();
+        localCache.invalidateAll();
+    }
+
+    // Called before the Redis write as well, so a preload or a load that read the old row cannot slip it in between.
+    void markInvalidated(String localKey) {
+        recentInvalidations.put(localKey, cacheManager.tickInvalidation());
+    }
+
+    private void markCleared() {
+        forgottenUpTo.accumulateAndGet(cacheManager.tickInvalidation(), Math::max);
+    }
+
+    /**
+     * Whether the key may have been invalidated after the given reading of the manager's
+     * invalidation clock; errs towards {@code true} once its stamp is no longer kept.
+     */
+    boolean invalidatedSince(Object key, long clock) {
+        Long stamp = recentInvalidations.getIfPresent(localKey(key));
+        return stamp != null && stamp > clock || forgottenUpTo.get() > clock;
+    }
+
+    static String localKey(Object key) {
+        return String.valueOf(key);
+    }
+
+    private Counter lookupCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("cache.lookups")
+                .tag("cache", name)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private Counter loadCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("cache.loads")
+                .tag("cache", name)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
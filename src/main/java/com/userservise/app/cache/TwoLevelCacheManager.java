@@ -0,0 +1,368 @@
+package com.userservise.app.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+@Slf4j
+public class TwoLevelCacheManager implements CacheManager, CacheInvalidationPublisher, MessageListener {
+
+    private static final String ALL_CACHES = "all";
+    private static final int MAX_STALE_KEYS = 10_000;
+    private static final byte[] GET_WITH_TTL_SCRIPT =
+            "return {redis.call('get', KEYS[1]), redis.call('pttl', KEYS[1])}".getBytes(StandardCharsets.UTF_8);
+
+    private record StaleKey(TwoLevelCache cache, Object key) {
+    }
+
+    private final CacheManager remoteCacheManager;
+    private final Caffeine<Object, Object> localCacheBuilder;
+    private final StringRedisTemplate redisTemplate;
+    private final String invalidationChannel;
+    private final CacheLoadCoordinator loadCoordinator;
+    private final RedisCircuitBreaker circuitBreaker;
+    private final MeterRegistry meterRegistry;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final ConcurrentMap<String, TwoLevelCache> caches = new ConcurrentHashMap<>();
+    private final AtomicLong invalidationClock = new AtomicLong();
+
+    // Writes that could not reach Redis; those keys may hold old values there once it is back.
+    private final Set<StaleKey> staleKeys = ConcurrentHashMap.newKeySet();
+    private final Set<TwoLevelCache> staleCaches = ConcurrentHashMap.newKeySet();
+
+    public TwoLevelCacheManager(CacheManager remoteCacheManager,
+                                Caffeine<Object, Object> localCacheBuilder,
+                                StringRedisTemplate redisTemplate,
+                                String invalidationChannel,
+                                CacheLoadCoordinator loadCoordinator,
+                                RedisCircuitBreaker circuitBreaker,
+                                MeterRegistry meterRegistry) {
+        this.remoteCacheManager = remoteCacheManager;
+        this.localCacheBuilder = localCacheBuilder;
+        this.redisTemplate = redisTemplate;
+        this.invalidationChannel = invalidationChannel;
+        this.loadCoordinator = loadCoordinator;
+        this.circuitBreaker = circuitBreaker;
+        this.meterRegistry = meterRegistry;
+        circuitBreaker.onClose(this::repairAfterOutage);
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        TwoLevelCache cache = caches.get(name);
+        if (cache != null)
+            return cache;
+
+        Cache remoteCache = remoteCacheManager.getCache(name);
+        if (remoteCache == null)
+            return null;
+
+        return caches.computeIfAbsent(name, cacheName ->
+                new TwoLevelCache(cacheName, localCacheBuilder.build(), remoteCache, this, loadCoordinator, circuitBreaker, meterRegistry));
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return remoteCacheManager.getCacheNames();
+    }
+
+    @Override
+    public void publish(String cacheName, String key) {
+        circuitBreaker.execute(cacheName, "publish",
+                () -> redisTemplate.convertAndSend(invalidationChannel, new CacheInvalidationMessage(nodeId, cacheName, key).encode()),
+                () -> {
+                });
+    }
+
+    /**
+     * Applies the writes a transaction buffered, once it has committed. When every remote tier is
+     * Redis the sets, one coalesced delete and the invalidations go out in a single pipeline.
+     */
+    void apply(Collection<TransactionalCacheWrites.Write> writes) {
+        for (TransactionalCacheWrites.Write write : writes)
+            write.cache().markInvalidated(TwoLevelCache.localKey(write.key()));
+
+        boolean applied;
+        try {
+            applied = circuitBreaker.execute(ALL_CACHES, "apply", () -> {
+                applyRemote(writes);
+                return true;
+            }, () -> false);
+        } catch (RuntimeException e) {
+            log.warn("Could not apply {} cache writes after commit: {}", writes.size(), e.getMessage());
+            applied = false;
+        }
+
+        if (!applied) {
+            // The transaction is already committed; keep this node from serving the old values and fix Redis later.
+            for (TransactionalCacheWrites.Write write : writes) {
+                write.cache().evictLocal(TwoLevelCache.localKey(write.key()));
+                markStale(write.cache(), write.key());
+            }
+            return;
+        }
+
+        for (TransactionalCacheWrites.Write write : writes) {
+            if (write.evict())
+                write.cache().evictLocal(TwoLevelCache.localKey(write.key()));
+            else
+                write.cache().putLocal(write.key(), write.value());
+        }
+    }
+
+    private void applyRemote(Collection<TransactionalCacheWrites.Write> writes) {
+        if (writes.stream().allMatch(write -> write.cache().getRemoteCache() instanceof PipelinedRedisCache))
+            applyRemotePipelined(writes);
+        else
+            writes.forEach(this::applyRemote);
+    }
+
+    private void applyRemote(TransactionalCacheWrites.Write write) {
+        if (write.evict())
+            write.cache().getRemoteCache().evict(write.key());
+        else
+            write.cache().getRemoteCache().put(write.key(), write.value());
+        publish(write.cache().getName(), TwoLevelCache.localKey(write.key()));
+    }
+
+    private void applyRemotePipelined(Collection<TransactionalCacheWrites.Write> writes) {
+        byte[] channel = invalidationChannel.getBytes(StandardCharsets.UTF_8);
+
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            List<byte[]> evictedKeys = new ArrayList<>();
+            for (TransactionalCacheWrites.Write write : writes) {
+                PipelinedRedisCache remoteCache = (PipelinedRedisCache) write.cache().getRemoteCache();
+                if (write.evict()) {
+                    evictedKeys.add(remoteCache.rawKey(write.key()));
+                    continue;
+                }
+
+                connection.stringCommands().set(
+                        remoteCache.rawKey(write.key()),
+                        remoteCache.rawValue(write.value()),
+                        expiration(remoteCache.timeToLive(write.key(), write.value())),
+                        RedisStringCommands.SetOption.upsert());
+            }
+            if (!evictedKeys.isEmpty())
+                connection.keyCommands().del(evictedKeys.toArray(byte[][]::new));
+
+            for (TransactionalCacheWrites.Write write : writes) {
+                String message = new CacheInvalidationMessage(nodeId, write.cache().getName(), TwoLevelCache.localKey(write.key())).encode();
+                connection.publish(channel, message.getBytes(StandardCharsets.UTF_8));
+            }
+
+            return null;
+        });
+    }
+
+    /**
+     * Reading of this node's invalidation clock, which ticks on every eviction or clear, local or
+     * announced by another node. Take it before reading the entries to {@link #preload}.
+     */
+    public long invalidationClock() {
+        return invalidationClock.get();
+    }
+
+    long tickInvalidation() {
+        return invalidationClock.incrementAndGet();
+    }
+
+    /**
+     * Fills the remote tier of a cache with entries that are not there yet, in one pipeline. Keys
+     * already present are left alone, since they may have been written after the entries were read,
+     * and so are keys invalidated since {@code readAt}: their eviction may already have run, and
+     * SET NX would bring the old row back. An invalidation from another node can still arrive after
+     * the write, so the entries live no longer than {@code timeToLive}. Nothing is put in L1 or
+     * announced to other nodes.
+     */
+    public void preload(String cacheName, Map<?, ?> entries, long readAt, Duration timeToLive) {
+        if (entries.isEmpty() || !(getCache(cacheName) instanceof TwoLevelCache cache))
+            return;
+
+        Map<Object, Object> unchanged = new LinkedHashMap<>();
+        entries.forEach((key, value) -> {
+            if (!cache.invalidatedSince(key, readAt))
+                unchanged.put(key, value);
+        });
+        if (unchanged.size() < entries.size())
+            log.debug("Preload of {} skipped {} keys invalidated while they were read", cacheName, entries.size() - unchanged.size());
+        if (unchanged.isEmpty())
+            return;
+
+        circuitBreaker.execute(cacheName, "preload", () -> putAllIfAbsent(cache.getRemoteCache(), unchanged, timeToLive), () -> {
+            throw new IllegalStateException("Redis is unavailable, cannot preload cache " + cacheName);
+        });
+    }
+
+    /**
+     * Same as {@link #preload}, for values a batch lookup just loaded; skipped when Redis is unavailable.
+     */
+    void backfill(TwoLevelCache cache, Map<?, ?> entries) {
+        if (!entries.isEmpty())
+            circuitBreaker.execute(cache.getName(), "backfill", () -> putAllIfAbsent(cache.getRemoteCache(), entries, null), () -> {
+            });
+    }
+
+    private void putAllIfAbsent(Cache remoteCache, Map<?, ?> entries, Duration maxTimeToLive) {
+        if (!(remoteCache instanceof PipelinedRedisCache pipelinedCache)) {
+            entries.forEach(remoteCache::putIfAbsent);
+            return;
+        }
+
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            entries.forEach((key, value) -> connection.stringCommands().set(
+                    pipelinedCache.rawKey(key),
+                    pipelinedCache.rawValue(value),
+                    expiration(shorter(pipelinedCache.timeToLive(key, value), maxTimeToLive)),
+                    RedisStringCommands.SetOption.ifAbsent()));
+            return null;
+        });
+    }
+
+    /**
+     * Reads a key of a Redis-backed cache together with its remaining TTL in milliseconds, both in
+     * one round trip; a missing or unreadable entry comes back with a {@code null} value. A script
+     * rather than a pipeline, so the read stays on the shared connection instead of borrowing a
+     * dedicated one from the pool.
+     */
+    @SuppressWarnings("unchecked")
+    RemoteEntry getWithTtl(PipelinedRedisCache remoteCache, Object key) {
+        byte[] rawKey = remoteCache.rawKey(key);
+        List<Object> results = redisTemplate.execute((RedisCallback<List<Object>>) connection ->
+                connection.scriptingCommands().eval(GET_WITH_TTL_SCRIPT, ReturnType.MULTI, 1, rawKey));
+        if (results == null || results.size() < 2)
+            return RemoteEntry.MISSING;
+
+        Long ttlMillis = (Long) results.get(1);
+        return new RemoteEntry(remoteCache.cacheValue((byte[]) results.get(0)), ttlMillis != null ? ttlMillis : -1);
+    }
+
+    record RemoteEntry(Object value, long ttlMillis) {
+
+        static final RemoteEntry MISSING = new RemoteEntry(null, -1);
+    }
+
+    /**
+     * Reads several keys of a Redis-backed cache with one {@code MGET}; missing or unreadable
+     * entries come back as {@code null} in the same position.
+     */
+    List<Object> multiGet(PipelinedRedisCache remoteCache, List<?> keys) {
+        List<byte[]> rawValues = redisTemplate.execute((RedisCallback<List<byte[]>>) connection ->
+                connection.stringCommands().mGet(keys.stream().map(remoteCache::rawKey).toArray(byte[][]::new)));
+
+        List<Object> values = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++)
+            values.add(rawValues != null ? remoteCache.cacheValue(rawValues.get(i)) : null);
+
+        return values;
+    }
+
+    void markStale(TwoLevelCache cache, Object key) {
+        if (staleKeys.size() < MAX_STALE_KEYS)
+            staleKeys.add(new StaleKey(cache, key));
+        else
+            staleCaches.add(cache);
+    }
+
+    void markStale(TwoLevelCache cache) {
+        staleCaches.add(cache);
+    }
+
+    /**
+     * Runs when the circuit closes. Invalidations from other nodes may have been missed while Redis
+     * was unreachable, so L1 is dropped; keys this node changed without reaching Redis are deleted
+     * there and announced, so no node keeps serving the values from before the outage.
+     */
+    private void repairAfterOutage() {
+        caches.values().forEach(TwoLevelCache::clearLocal);
+
+        List<TwoLevelCache> clearedCaches = new ArrayList<>(staleCaches);
+        List<StaleKey> evictedKeys = new ArrayList<>(staleKeys);
+        if (clearedCaches.isEmpty() && evictedKeys.isEmpty())
+            return;
+
+        List<TransactionalCacheWrites.Write> evictions = evictedKeys.stream()
+                .filter(staleKey -> !clearedCaches.contains(staleKey.cache()))
+                .map(staleKey -> new TransactionalCacheWrites.Write(staleKey.cache(), staleKey.key(), null, true))
+                .toList();
+
+        boolean repaired = circuitBreaker.execute(ALL_CACHES, "repair", () -> {
+            for (TwoLevelCache cache : clearedCaches) {
+                cache.getRemoteCache().clear();
+                redisTemplate.convertAndSend(invalidationChannel,
+                        new CacheInvalidationMessage(nodeId, cache.getName(), CacheInvalidationMessage.ALL_KEYS).encode());
+            }
+            if (!evictions.isEmpty())
+                applyRemote(evictions);
+            return true;
+        }, () -> false);
+
+        if (repaired) {
+            clearedCaches.forEach(staleCaches::remove);
+            evictedKeys.forEach(staleKeys::remove);
+            log.info("Repaired {} caches and {} keys written during the Redis outage", clearedCaches.size(), evictedKeys.size());
+        }
+    }
+
+    private static Duration shorter(Duration timeToLive, Duration maxTimeToLive) {
+        if (maxTimeToLive == null)
+            return timeToLive;
+        if (timeToLive == null || timeToLive.isZero() || timeToLive.isNegative())
+            return maxTimeToLive;
+
+        return timeToLive.compareTo(maxTimeToLive) <= 0 ? timeToLive : maxTimeToLive;
+    }
+
+    private static Expiration expiration(Duration timeToLive) {
+        if (timeToLive == null || timeToLive.isZero() || timeToLive.isNegative())
+            return Expiration.persistent();
+
+        return Expiration.from(timeToLive);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        CacheInvalidationMessage invalidation;
+        try {
+            invalidation = CacheInvalidationMessage.decode(new String(message.getBody(), StandardCharsets.UTF_8));
+        } catch (IllegalArgumentException e) {
+            log.warn(e.getMessage());
+            return;
+        }
+
+        if (nodeId.equals(invalidation.getOrigin()))
+            return;
+
+        // Created if need be, so a preload running before the first local use still sees the invalidation.
+        if (!(getCache(invalidation.getCacheName()) instanceof TwoLevelCache cache))
+            return;
+
+        if (invalidation.isClear())
+            cache.clearLocal();
+        else
+            cache.evictLocal(invalidation.getKey());
+    }
+}
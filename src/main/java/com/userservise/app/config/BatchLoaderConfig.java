@@ -0,0 +1,67 @@
+package com.userservise.app.config;
+
+import com.userservise.app.mapper.CardMapper;
+import com.userservise.app.mapper.UserMapper;
+import com.userservise.app.model.dto.CardDto;
+import com.userservise.app.model.dto.UserDto;
+import com.userservise.app.model.entity.Card;
+import com.userservise.app.model.entity.User;
+import com.userservise.app.repository.CardRepository;
+import com.userservise.app.repository.UserRepository;
+import com.userservise.app.utils.MicroBatcher;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.stream.Collectors;
+
+/**
+ * Single-id lookups that miss the cache are gathered for a short window and loaded with one
+ * {@code IN (...)} query per batch.
+ */
+@Configuration
+public class BatchLoaderConfig {
+
+    @Value("${batch.load.window:200us}")
+    private Duration window;
+
+    @Value("${batch.load.max-size:100}")
+    private int maxSize;
+
+    @Bean
+    public MicroBatcher<Integer, UserDto> userBatchLoader(UserRepository userRepository,
+                                                          UserMapper userMapper,
+                                                          PlatformTransactionManager transactionManager,
+                                                          MeterRegistry meterRegistry) {
+        TransactionTemplate transactionTemplate = readOnlyTransaction(transactionManager);
+
+        return new MicroBatcher<>("users", userIds -> transactionTemplate.execute(status ->
+                userRepository.findUsersWithCardsByUserIdIn(userIds).stream()
+                        .collect(Collectors.toMap(User::getUserId, userMapper::toDto))),
+                window, maxSize, meterRegistry);
+    }
+
+    @Bean
+    public MicroBatcher<Integer, CardDto> cardBatchLoader(CardRepository cardRepository,
+                                                          CardMapper cardMapper,
+                                                          PlatformTransactionManager transactionManager,
+                                                          MeterRegistry meterRegistry) {
+        TransactionTemplate transactionTemplate = readOnlyTransaction(transactionManager);
+
+        return new MicroBatcher<>("cards", ids -> transactionTemplate.execute(status ->
+                cardRepository.findCardsWithOwnerByIdIn(ids).stream()
+                        .collect(Collectors.toMap(Card::getId, cardMapper::toDto))),
+                window, maxSize, meterRegistry);
+    }
+
+    private static TransactionTemplate readOnlyTransaction(PlatformTransactionManager transactionManager) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.setReadOnly(true);
+
+        return transactionTemplate;
+    }
+}
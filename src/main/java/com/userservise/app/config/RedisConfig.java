@@ -1,49 +1,156 @@
 package com.userservise.app.config;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.userservise.app.cache.CacheLoadCoordinator;
+import com.userservise.app.cache.CacheValueSerializer;
+import com.userservise.app.cache.PipelinedRedisCacheManager;
+import com.userservise.app.cache.RedisCircuitBreaker;
+import com.userservise.app.cache.ResilientCacheErrorHandler;
+import com.userservise.app.cache.TwoLevelCacheManager;
 import com.userservise.app.model.dto.CardDto;
 import com.userservise.app.model.dto.UserDto;
+import io.lettuce.core.ClientOptions;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.data.redis.LettuceClientOptionsBuilderCustomizer;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.cache.annotation.CachingConfigurer;
+import org.springframework.cache.interceptor.CacheErrorHandler;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.cache.RedisCacheWriter;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
-import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
 
 import java.time.Duration;
+import java.util.List;
+import java.util.Map;
 
 @Configuration
 public class RedisConfig {
 
-    private <T> Jackson2JsonRedisSerializer<T> jacksonSerializer(Class<T> clazz) {
-        ObjectMapper objectMapper = new ObjectMapper();
-        objectMapper.registerModule(new JavaTimeModule()); // поддержка LocalDateTime
-        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    @Value("${cache.invalidation.channel:user-service:cache-invalidation}")
+    private String invalidationChannel;
 
-        return new Jackson2JsonRedisSerializer<>(objectMapper, clazz);
-    }
+    @Value("${cache.serialization.format:legacy}")
+    private CacheValueSerializer.Format serializationFormat;
 
-    @Bean
-    public RedisCacheManager cacheManager(RedisConnectionFactory connectionFactory) {
+    @Value("${cache.serialization.compression-threshold:1024}")
+    private int compressionThreshold;
+
+    @Value("${cache.cards-by-user.ttl:5m}")
+    private Duration cardsByUserTtl;
+
+    private RedisCacheManager redisCacheManager(RedisConnectionFactory connectionFactory) {
         RedisCacheConfiguration userCacheConfiguration = RedisCacheConfiguration.defaultCacheConfig()
                 .entryTtl(Duration.ofMinutes(10))
                 .disableCachingNullValues()
                 .serializeValuesWith(RedisSerializationContext.SerializationPair
-                        .fromSerializer(jacksonSerializer(UserDto.class)));
+                        .fromSerializer(new CacheValueSerializer<>(UserDto.class, serializationFormat, compressionThreshold)));
 
         RedisCacheConfiguration cardCacheConfiguration = RedisCacheConfiguration.defaultCacheConfig()
                 .entryTtl(Duration.ofMinutes(10))
                 .disableCachingNullValues()
                 .serializeValuesWith(RedisSerializationContext.SerializationPair
-                        .fromSerializer(jacksonSerializer(CardDto.class)));
+                        .fromSerializer(new CacheValueSerializer<>(CardDto.class, serializationFormat, compressionThreshold)));
+
+        JavaType cardListType = TypeFactory.defaultInstance().constructCollectionType(List.class, CardDto.class);
+        RedisCacheConfiguration cardsByUserCacheConfiguration = RedisCacheConfiguration.defaultCacheConfig()
+                .entryTtl(cardsByUserTtl)
+                .disableCachingNullValues()
+                .serializeValuesWith(RedisSerializationContext.SerializationPair
+                        .fromSerializer(new CacheValueSerializer<List<CardDto>>(cardListType, serializationFormat, compressionThreshold)));
+
+        RedisCacheManager redisCacheManager = new PipelinedRedisCacheManager(
+                RedisCacheWriter.nonLockingRedisCacheWriter(connectionFactory),
+                RedisCacheConfiguration.defaultCacheConfig(),
+                Map.of(
+                        "users", userCacheConfiguration,
+                        "cards", cardCacheConfiguration,
+                        "cardsByUser", cardsByUserCacheConfiguration));
+        redisCacheManager.afterPropertiesSet();
+
+        return redisCacheManager;
+    }
+
+    @Bean
+    public TwoLevelCacheManager cacheManager(
+            RedisConnectionFactory connectionFactory,
+            StringRedisTemplate redisTemplate,
+            RedisCircuitBreaker circuitBreaker,
+            MeterRegistry meterRegistry,
+            @Value("${cache.local.maximum-size:10000}") long localMaximumSize,
+            @Value("${cache.local.expire-after-write:60s}") Duration localExpireAfterWrite,
+            @Value("${cache.local.expire-after-access:30s}") Duration localExpireAfterAccess,
+            @Value("${cache.load.lock-ttl:5s}") Duration loadLockTtl,
+            @Value("${cache.load.lock-wait:2s}") Duration loadLockWait,
+            @Value("${cache.load.early-refresh-beta:1.0}") double earlyRefreshBeta) {
+        Caffeine<Object, Object> localCacheBuilder = Caffeine.newBuilder()
+                .maximumSize(localMaximumSize)
+                .expireAfterWrite(localExpireAfterWrite)
+                .expireAfterAccess(localExpireAfterAccess);
+
+        return new TwoLevelCacheManager(
+                redisCacheManager(connectionFactory),
+                localCacheBuilder,
+                redisTemplate,
+                invalidationChannel,
+                new CacheLoadCoordinator(redisTemplate, loadLockTtl, loadLockWait, earlyRefreshBeta),
+                circuitBreaker,
+                meterRegistry);
+    }
+
+    @Bean
+    public RedisCircuitBreaker redisCircuitBreaker(
+            MeterRegistry meterRegistry,
+            @Value("${cache.circuit-breaker.failure-threshold:5}") int failureThreshold,
+            @Value("${cache.circuit-breaker.open-duration:10s}") Duration openDuration) {
+        return new RedisCircuitBreaker(failureThreshold, openDuration, meterRegistry);
+    }
+
+    @Bean
+    public CachingConfigurer cachingConfigurer(MeterRegistry meterRegistry) {
+        CacheErrorHandler errorHandler = new ResilientCacheErrorHandler(meterRegistry);
+        return new CachingConfigurer() {
+            @Override
+            public CacheErrorHandler errorHandler() {
+                return errorHandler;
+            }
+        };
+    }
+
+    /**
+     * Fail commands straight away while the connection is down instead of queueing them until
+     * they time out, so the circuit breaker sees the outage immediately.
+     */
+    @Bean
+    public LettuceClientOptionsBuilderCustomizer failFastLettuceClientOptions() {
+        return builder -> builder.disconnectedBehavior(ClientOptions.DisconnectedBehavior.REJECT_COMMANDS);
+    }
+
+    @Bean
+    public RedisMessageListenerContainer cacheInvalidationListenerContainer(
+            RedisConnectionFactory connectionFactory,
+            TwoLevelCacheManager cacheManager,
+            Environment environment) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        if (Threading.VIRTUAL.isActive(environment)) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("cache-invalidation-");
+            executor.setVirtualThreads(true);
+            container.setTaskExecutor(executor);
+        }
+        container.addMessageListener(cacheManager, new ChannelTopic(invalidationChannel));
 
-        return RedisCacheManager
-                .builder(connectionFactory)
-                .withCacheConfiguration("users", userCacheConfiguration)
-                .withCacheConfiguration("cards", cardCacheConfiguration)
-                .build();
+        return container;
     }
 }
@@ -0,0 +1,37 @@
+package com.userservise.app.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadConfig {
+
+    // Built like Boot's own Hikari pool, which backs off once a DataSource bean exists. The pool stays
+    // a bean of its own, so Hikari metrics, health and by-type lookups of HikariDataSource still find it.
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    HikariDataSource hikariDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        if (StringUtils.hasText(properties.getName()))
+            dataSource.setPoolName(properties.getName());
+
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    FairDataSource dataSource(HikariDataSource hikariDataSource) {
+        return new FairDataSource(hikariDataSource, hikariDataSource.getMaximumPoolSize(),
+                Duration.ofMillis(hikariDataSource.getConnectionTimeout()));
+    }
+}
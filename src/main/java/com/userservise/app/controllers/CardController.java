@@ -1,18 +1,30 @@
 package com.userservise.app.controllers;
 
+import com.userservise.app.model.dto.BatchRequest;
 import com.userservise.app.model.dto.CardDto;
+import com.userservise.app.model.dto.CardStatusRequest;
+import com.userservise.app.model.enums.ActiveStatus;
+import com.userservise.app.model.exception.NotFoundException;
+import com.userservise.app.model.response.BatchResponse;
+import com.userservise.app.model.response.BulkStatusResponse;
+import com.userservise.app.model.response.SliceResponse;
+import com.userservise.app.security.authorization.AccessPolicy;
+import com.userservise.app.service.BulkStatusService;
 import com.userservise.app.service.CardService;
+import com.userservise.app.service.UserService;
+import com.userservise.app.utils.CursorCodec;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import java.util.List;
 
@@ -24,9 +36,11 @@ import java.util.List;
 public class CardController {
 
     private final CardService cardService;
+    private final UserService userService;
+    private final BulkStatusService bulkStatusService;
 
     @GetMapping("/{id}")
-    @PreAuthorize("@cardServiceImpl.isOwner(#id, principal.id) or hasRole('ADMIN')")
+    @AccessPolicy(owner = AccessPolicy.Ownership.CARD, param = "id")
     public ResponseEntity<CardDto> getCardById(
             @PathVariable Integer id) {
         log.info("Received request to fetch card with ID: {}", id);
@@ -36,8 +50,19 @@ public class CardController {
         return ResponseEntity.ok().body(card);
     }
 
+    @PostMapping("/batch")
+    @AccessPolicy(owner = AccessPolicy.Ownership.CARD, param = "request")
+    public ResponseEntity<BatchResponse<CardDto>> getCardsByIds(
+            @RequestBody BatchRequest request) {
+        log.info("Received request to fetch {} cards by ID", request.getIds() != null ? request.getIds().size() : 0);
+        BatchResponse<CardDto> response = cardService.getCardsByIds(request.getIds());
+
+        log.debug("Fetched cards data: {}", response);
+        return ResponseEntity.ok().body(response);
+    }
+
     @GetMapping("/all")
-    @PreAuthorize("hasRole('ADMIN')")
+    @AccessPolicy
     public ResponseEntity<Page<CardDto>> getAllCards(
             @RequestParam(required = false) String holder,
             @RequestParam(defaultValue = "0") int page,
@@ -51,20 +76,41 @@ public class CardController {
         return ResponseEntity.ok().body(cards);
     }
 
+    @GetMapping("/scroll")
+    @AccessPolicy
+    public ResponseEntity<SliceResponse<CardDto>> scrollCards(
+            @RequestParam(required = false) String holder,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int limit) {
+        log.info("Received request to scroll cards");
+
+        Slice<CardDto> cards = cardService.scrollCards(holder, CursorCodec.decode(cursor), limit);
+        SliceResponse<CardDto> response = SliceResponse.of(cards, CardDto::getId);
+
+        log.debug("Fetched cards data: {}", response);
+        return ResponseEntity.ok().body(response);
+    }
+
     @GetMapping("/user/{id}")
-    @PreAuthorize("#userId == principal.id or hasRole('ADMIN')")
+    @AccessPolicy(owner = AccessPolicy.Ownership.USER, param = "userId")
     public ResponseEntity<List<CardDto>> getCardByUserId(
-            @PathVariable("id") Integer userId){
+            @PathVariable("id") Integer userId,
+            WebRequest webRequest){
         log.info("Received request to fetch card with UserId: {}", userId);
 
+        // Card changes move the owner's stamp, so it also tags the card list.
+        String eTag = ownerVersion(userId);
+        if (eTag != null && webRequest.checkNotModified(eTag))
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+
         List<CardDto> response = cardService.getAllByUserId(userId);
         log.debug("Fetched cards data by userId: {}", response);
 
-        return ResponseEntity.ok(response);
+        return ResponseEntity.ok().eTag(eTag).body(response);
     }
 
     @PostMapping("/create/{id}")
-    @PreAuthorize("#userId == principal.id or hasRole('ADMIN')")
+    @AccessPolicy(owner = AccessPolicy.Ownership.USER, param = "userId")
     public ResponseEntity<CardDto> createCard(
             @PathVariable("id") Integer userId) {
         log.info("Received request to create card for userId: {}", userId);
@@ -76,7 +122,7 @@ public class CardController {
     }
 
     @PutMapping("/update/{id}")
-    @PreAuthorize("@cardServiceImpl.isOwner(#id, principal.id) or hasRole('ADMIN')")
+    @AccessPolicy(owner = AccessPolicy.Ownership.CARD, param = "id")
     public ResponseEntity<CardDto> updateCard(
             @PathVariable Integer id,
             @Valid @RequestBody CardDto cardDto) {
@@ -89,7 +135,7 @@ public class CardController {
     }
 
     @PutMapping("/{id}/active")
-    @PreAuthorize("@cardServiceImpl.isOwner(#id, principal.id) or hasRole('ADMIN')")
+    @AccessPolicy(owner = AccessPolicy.Ownership.CARD, param = "id")
     public ResponseEntity<CardDto> setActiveCard(
             @PathVariable Integer id) {
         log.info("Received request to set active to card with ID: {}", id);
@@ -101,7 +147,7 @@ public class CardController {
     }
 
     @PutMapping("/{id}/inactive")
-    @PreAuthorize("@cardServiceImpl.isOwner(#id, principal.id) or hasRole('ADMIN')")
+    @AccessPolicy(owner = AccessPolicy.Ownership.CARD, param = "id")
     public ResponseEntity<CardDto> setInactiveCard(
             @PathVariable Integer id) {
         log.info("Received request to set inactive to card with ID: {}", id);
@@ -112,8 +158,32 @@ public class CardController {
         return ResponseEntity.ok(response);
     }
 
+    @PutMapping("/bulk/active")
+    @AccessPolicy
+    public ResponseEntity<BulkStatusResponse> setActiveCards(
+            @RequestBody CardStatusRequest request) {
+        log.info("Received request to set active cards in bulk");
+
+        BulkStatusResponse response = bulkStatusService.changeCardStatus(request, ActiveStatus.ACTIVE);
+
+        log.debug("Cards set active: {} in {} chunks", response.getAffected(), response.getChunks());
+        return ResponseEntity.ok(response);
+    }
+
+    @PutMapping("/bulk/inactive")
+    @AccessPolicy
+    public ResponseEntity<BulkStatusResponse> setInactiveCards(
+            @RequestBody CardStatusRequest request) {
+        log.info("Received request to set inactive cards in bulk");
+
+        BulkStatusResponse response = bulkStatusService.changeCardStatus(request, ActiveStatus.INACTIVE);
+
+        log.debug("Cards set inactive: {} in {} chunks", response.getAffected(), response.getChunks());
+        return ResponseEntity.ok(response);
+    }
+
     @DeleteMapping("/{id}/delete")
-    @PreAuthorize("@cardServiceImpl.isOwner(#id, principal.id) or hasRole('ADMIN')")
+    @AccessPolicy(owner = AccessPolicy.Ownership.CARD, param = "id")
     public ResponseEntity<Void> deleteCard(
             @PathVariable Integer id) {
         log.info("Received request to delete card with ID: {}", id);
@@ -122,4 +192,15 @@ public class CardController {
         log.debug("Card {} was deleted.", id);
         return ResponseEntity.noContent().build();
     }
-}
\ No newline at end of file
+
+    // Read through the cached getUserById, so the ETag shares its single-flight load and its
+    // NotFoundException with the user endpoint; a missing owner just gets no ETag.
+    private String ownerVersion(Integer userId) {
+        try {
+            Long version = userService.getUserById(userId).getVersion();
+            return version != null ? String.valueOf(version) : null;
+        } catch (NotFoundException e) {
+            return null;
+        }
+    }
+}
@@ -1,20 +1,38 @@
 package com.userservise.app.controllers;
 
+import com.userservise.app.model.dto.BatchRequest;
 import com.userservise.app.model.dto.UserRequest;
 import com.userservise.app.model.dto.UserDto;
+import com.userservise.app.model.dto.UserStatusRequest;
+import com.userservise.app.model.enums.ActiveStatus;
+import com.userservise.app.model.response.BatchResponse;
+import com.userservise.app.model.response.BulkStatusResponse;
+import com.userservise.app.model.response.CacheWarmUpStatus;
+import com.userservise.app.model.response.SliceResponse;
+import com.userservise.app.model.response.UserImportResponse;
+import com.userservise.app.security.authorization.AccessPolicy;
+import com.userservise.app.service.BulkStatusService;
+import com.userservise.app.service.CacheWarmUpService;
+import com.userservise.app.service.UserExportService;
+import com.userservise.app.service.UserImportService;
 import com.userservise.app.service.UserService;
+import com.userservise.app.utils.CursorCodec;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
 import java.security.Principal;
 
 @Slf4j
@@ -25,20 +43,41 @@ import java.security.Principal;
 public class UserController {
 
     private final UserService userService;
+    private final UserImportService userImportService;
+    private final UserExportService userExportService;
+    private final CacheWarmUpService cacheWarmUpService;
+    private final BulkStatusService bulkStatusService;
 
     @GetMapping("/{userId}")
-    @PreAuthorize("#userId == principal.id or hasRole('ADMIN')")
+    @AccessPolicy(owner = AccessPolicy.Ownership.USER, param = "userId")
     public ResponseEntity<UserDto> getUserById(
-            @PathVariable Integer userId) {
+            @PathVariable Integer userId,
+            WebRequest webRequest) {
         log.info("Received request to fetch user with ID: {}", userId);
         UserDto userDto = userService.getUserById(userId);
+
+        // The stamp travels inside the cached DTO, so a 304 needs neither the database nor serialization.
+        String eTag = userDto.getVersion() != null ? userDto.getVersion().toString() : null;
+        if (eTag != null && webRequest.checkNotModified(eTag))
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).build();
+
         log.debug("Fetched user data: {}", userDto);
+        return ResponseEntity.ok().eTag(eTag).body(userDto);
+    }
+
+    @PostMapping("/batch")
+    @AccessPolicy(owner = AccessPolicy.Ownership.USER, param = "request")
+    public ResponseEntity<BatchResponse<UserDto>> getUsersByIds(
+            @RequestBody BatchRequest request) {
+        log.info("Received request to fetch {} users by ID", request.getIds() != null ? request.getIds().size() : 0);
+        BatchResponse<UserDto> response = userService.getUsersByIds(request.getIds());
 
-        return ResponseEntity.ok(userDto);
+        log.debug("Fetched users data: {}", response);
+        return ResponseEntity.ok(response);
     }
 
     @GetMapping("/all")
-    @PreAuthorize("hasRole('ADMIN')")
+    @AccessPolicy
     public ResponseEntity<Page<UserDto>> getAllUsers(
             @RequestParam(required = false) String firstName,
             @RequestParam(required = false) String surname,
@@ -53,6 +92,42 @@ public class UserController {
         return ResponseEntity.ok(response);
     }
 
+    @GetMapping("/scroll")
+    @AccessPolicy
+    public ResponseEntity<SliceResponse<UserDto>> scrollUsers(
+            @RequestParam(required = false) String firstName,
+            @RequestParam(required = false) String surname,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int limit) {
+
+        log.info("Received request to scroll users");
+        Slice<UserDto> users = userService.scrollUsers(firstName, surname, CursorCodec.decode(cursor), limit);
+        SliceResponse<UserDto> response = SliceResponse.of(users, UserDto::getUserId);
+
+        log.debug("Fetched user data: {}", response);
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @AccessPolicy
+    public ResponseEntity<StreamingResponseBody> exportUsers() {
+        log.info("Received request to export all users");
+        StreamingResponseBody body = userExportService::exportUsers;
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    @PostMapping("/cache/warm-up")
+    @AccessPolicy
+    public ResponseEntity<CacheWarmUpStatus> warmUpCache() {
+        log.info("Received request to warm up user caches");
+        CacheWarmUpStatus response = cacheWarmUpService.warmUp();
+
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(response);
+    }
+
     @PostMapping("/create")
     public ResponseEntity<UserRequest> createUser(
             @RequestBody UserRequest request) {
@@ -64,8 +139,28 @@ public class UserController {
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @AccessPolicy
+    public ResponseEntity<UserImportResponse> importUsers(InputStream body) {
+        log.info("Received request to import users from a JSON array");
+        UserImportResponse response = userImportService.importJsonArray(body);
+
+        log.info("Imported users: {} created, {} failed", response.getCreated(), response.getFailed());
+        return ResponseEntity.ok(response);
+    }
+
+    @PostMapping(value = "/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    @AccessPolicy
+    public ResponseEntity<UserImportResponse> importUsersStream(InputStream body) {
+        log.info("Received request to import users from an NDJSON stream");
+        UserImportResponse response = userImportService.importNdjson(body);
+
+        log.info("Imported users: {} created, {} failed", response.getCreated(), response.getFailed());
+        return ResponseEntity.ok(response);
+    }
+
     @PutMapping("/update/{userId}")
-    @PreAuthorize("#userId == principal.id or hasRole('ADMIN')")
+    @AccessPolicy(owner = AccessPolicy.Ownership.USER, param = "userId")
     public ResponseEntity<UserDto> updateUserWithId(
             @PathVariable("userId") Integer userId,
             @RequestBody @Valid UserRequest updatedUser) {
@@ -77,7 +172,7 @@ public class UserController {
     }
 
     @PutMapping("/{id}/active")
-    @PreAuthorize("hasRole('ADMIN')")
+    @AccessPolicy
     public ResponseEntity<UserDto> setActiveUser(
             @PathVariable("id") Integer id) {
         log.info("Received request to set active user with ID: {}", id);
@@ -89,7 +184,7 @@ public class UserController {
     }
 
     @PutMapping("/{userId}/inactive")
-    @PreAuthorize("hasRole('ADMIN')")
+    @AccessPolicy
     public ResponseEntity<UserDto> setInactiveUser(
             @PathVariable("userId") Integer userId ) {
         log.info("Received request to set inactive user with ID: {}", userId);
@@ -100,8 +195,32 @@ public class UserController {
         return ResponseEntity.ok(inactivatedUser);
     }
 
+    @PutMapping("/bulk/active")
+    @AccessPolicy
+    public ResponseEntity<BulkStatusResponse> setActiveUsers(
+            @RequestBody UserStatusRequest request) {
+        log.info("Received request to set active users in bulk");
+
+        BulkStatusResponse response = bulkStatusService.changeUserStatus(request, ActiveStatus.ACTIVE);
+
+        log.debug("Users activated: {} in {} chunks", response.getAffected(), response.getChunks());
+        return ResponseEntity.ok(response);
+    }
+
+    @PutMapping("/bulk/inactive")
+    @AccessPolicy
+    public ResponseEntity<BulkStatusResponse> setInactiveUsers(
+            @RequestBody UserStatusRequest request) {
+        log.info("Received request to set inactive users in bulk");
+
+        BulkStatusResponse response = bulkStatusService.changeUserStatus(request, ActiveStatus.INACTIVE);
+
+        log.debug("Users inactivated: {} in {} chunks", response.getAffected(), response.getChunks());
+        return ResponseEntity.ok(response);
+    }
+
     @DeleteMapping("/{userId}")
-    @PreAuthorize("#userId == principal.id or hasRole('ADMIN')")
+    @AccessPolicy(owner = AccessPolicy.Ownership.USER, param = "userId")
     public ResponseEntity<Void> deleteUserById(
             @PathVariable Integer userId) {
         log.info("Received request to delete user with ID: {}", userId);
@@ -111,6 +230,17 @@ public class UserController {
         return ResponseEntity.ok().build();
     }
 
+    @PostMapping("/batch/delete")
+    @AccessPolicy
+    public ResponseEntity<BatchResponse<Integer>> deleteUsersByIds(
+            @RequestBody BatchRequest request) {
+        log.info("Received request to delete {} users by ID", request.getIds() != null ? request.getIds().size() : 0);
+        BatchResponse<Integer> response = userService.deleteByIds(request.getIds());
+
+        log.debug("Users deleted: {}, not found: {}", response.getContent(), response.getNotFound());
+        return ResponseEntity.ok(response);
+    }
+
     @GetMapping("/info/{userId}")
     public ResponseEntity<UserRequest> getUserInfoByEmail(
             @PathVariable Integer userId) {
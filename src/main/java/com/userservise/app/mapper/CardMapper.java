@@ -3,6 +3,7 @@ package com.userservise.app.mapper;
 import com.userservise.app.model.dto.CardDto;
 import com.userservise.app.model.entity.Card;
 import com.userservise.app.model.entity.User;
+import com.userservise.app.repository.CardRepository;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.MappingTarget;
@@ -17,6 +18,8 @@ public interface CardMapper {
 
     CardDto toDto(Card card);
 
+    CardDto toDto(CardRepository.CardRow row);
+
     @Mapping(target = "owner", ignore = true)
     Card toCard(CardDto cardDto);
 
@@ -1,11 +1,17 @@
 package com.userservise.app.mapper;
 
+import com.userservise.app.model.dto.CardDto;
 import com.userservise.app.model.dto.UserRequest;
 import com.userservise.app.model.dto.UserDto;
+import com.userservise.app.model.entity.Card;
 import com.userservise.app.model.entity.User;
 import com.userservise.app.model.enums.ActiveStatus;
+import com.userservise.app.repository.UserRepository;
 import org.mapstruct.*;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Mapper(
         componentModel = "spring",
         nullValuePropertyMappingStrategy = NullValuePropertyMappingStrategy.IGNORE,
@@ -16,12 +22,16 @@ public interface UserMapper {
 
     UserDto toDto(User user);
 
+    @Mapping(target = "cards", source = "cards")
+    UserDto toDto(User user, List<Card> cards);
+
     @Mapping(target = "cards", ignore = true)
     @Mapping(target = "id", ignore = true)
     @Mapping(target = "active", ignore = true)
     @Mapping(target = "createdAt", ignore = true)
     @Mapping(target = "updatedAt", ignore = true)
     @Mapping(target = "userId", ignore = true)
+    @Mapping(target = "version", ignore = true)
     void updateUser(UserRequest userDto, @MappingTarget User user);
 
     @Mapping(target = "cards", ignore = true)
@@ -33,7 +43,32 @@ public interface UserMapper {
     @Mapping(target = "updatedAt", ignore = true)
     @Mapping(target = "active", expression = "java(ActiveStatus.INACTIVE)")
     @Mapping(target = "userId", source = "userId")
+    @Mapping(target = "version", ignore = true)
     User createUser(UserRequest request);
 
     UserRequest toUserRequest(User user);
+
+    @Mapping(target = "cards", ignore = true)
+    UserDto toDto(UserRepository.UserCardRow row);
+
+    @Mapping(target = "id", source = "cardId")
+    @Mapping(target = "number", source = "cardNumber")
+    @Mapping(target = "holder", source = "cardHolder")
+    @Mapping(target = "expirationDate", source = "cardExpirationDate")
+    @Mapping(target = "active", source = "cardActive")
+    @Mapping(target = "createdAt", source = "cardCreatedAt")
+    @Mapping(target = "updatedAt", source = "cardUpdatedAt")
+    CardDto toCardDto(UserRepository.UserCardRow row);
+
+    // Rows of UserRepository.updateActive: the user columns repeat, the card columns are null without cards.
+    default UserDto toDto(List<UserRepository.UserCardRow> rows) {
+        UserDto user = toDto(rows.get(0));
+        List<CardDto> cards = new ArrayList<>(rows.size());
+        for (UserRepository.UserCardRow row : rows)
+            if (row.getCardId() != null)
+                cards.add(toCardDto(row));
+        user.setCards(cards);
+
+        return user;
+    }
 }
@@ -12,9 +12,21 @@ public enum ErrorMessage {
     USER_CANNOT_HAVE_MORE_THAN_5_CARDS("User with id: %s has more than 5 cards"),
     USER_NOT_FOUND_BY_EMAIL("User with email: %s was not found"),
     EMAIL_ALREADY_EXISTS("User with email: %s already exists"),
+    USER_ID_ALREADY_EXISTS("User with user id: %s already exists"),
+    USER_ID_IS_REQUIRED("User id is required"),
 
     CARD_NOT_FOUND_BY_ID("Card with id: %s was not found"),
     CARD_NUMBER_ALREADY_EXISTS("Card with number: %s already exists"),
+    CARD_NUMBER_GENERATION_FAILED("Could not generate a unique card number in %s attempts"),
+
+    INVALID_CURSOR("Cursor: %s is not valid"),
+    INVALID_PAGE_LIMIT("Limit must be between 1 and %s"),
+    INVALID_BATCH_SIZE("Between 1 and %s non-null ids must be requested"),
+    INVALID_BULK_SELECTOR("Exactly one of %s must be given"),
+
+    INVALID_IMPORT_PAYLOAD("Import payload is not valid: %s"),
+    INVALID_IMPORT_ROW("Row could not be read: %s"),
+    IMPORT_BATCH_FAILED("Row could not be saved: %s"),
     ;
 
     private final String message;
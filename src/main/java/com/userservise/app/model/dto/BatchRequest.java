@@ -0,0 +1,13 @@
+package com.userservise.app.model.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+public class BatchRequest {
+
+    private List<Integer> ids;
+}
@@ -0,0 +1,16 @@
+package com.userservise.app.model.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Selects the cards of a bulk status change: by card id, by owner or by holder.
+@Data
+@NoArgsConstructor
+public class CardStatusRequest {
+
+    private List<Integer> cardIds;
+    private List<Integer> userIds;
+    private String holder;
+}
@@ -45,4 +45,6 @@ public class UserDto {
 
     @JsonFormat(pattern = "yyyy-MM-dd")
     private LocalDate updatedAt;
+
+    private Long version;
 }
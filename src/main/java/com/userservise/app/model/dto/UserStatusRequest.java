@@ -0,0 +1,16 @@
+package com.userservise.app.model.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// Selects the users of a bulk status change: by user id, or by first name and/or surname.
+@Data
+@NoArgsConstructor
+public class UserStatusRequest {
+
+    private List<Integer> userIds;
+    private String firstName;
+    private String surname;
+}
@@ -23,7 +23,7 @@ public class Card extends BaseEntity {
     @ToString.Exclude
     private User owner;
 
-    @Column(name = "number")
+    @Column(name = "number", unique = true)
     private String number;
 
     @Column(name = "holder")
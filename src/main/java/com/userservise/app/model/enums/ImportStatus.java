@@ -0,0 +1,10 @@
+package com.userservise.app.model.enums;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public enum ImportStatus {
+    CREATED,
+    FAILED,
+}
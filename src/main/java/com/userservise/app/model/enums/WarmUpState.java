@@ -0,0 +1,12 @@
+package com.userservise.app.model.enums;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public enum WarmUpState {
+    PENDING,
+    RUNNING,
+    COMPLETED,
+    FAILED,
+}
@@ -0,0 +1,32 @@
+package com.userservise.app.model.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+@Data
+@AllArgsConstructor
+public class BatchResponse<T> {
+
+    private List<T> content;
+    private List<Integer> notFound;
+
+    // Keeps the order of the requested ids, without duplicates.
+    public static <T> BatchResponse<T> of(List<Integer> ids, Map<Integer, T> found) {
+        List<T> content = new ArrayList<>(found.size());
+        List<Integer> notFound = new ArrayList<>();
+        for (Integer id : new LinkedHashSet<>(ids)) {
+            T item = found.get(id);
+            if (item != null)
+                content.add(item);
+            else
+                notFound.add(id);
+        }
+
+        return new BatchResponse<>(content, notFound);
+    }
+}
@@ -0,0 +1,14 @@
+package com.userservise.app.model.response;
+
+import com.userservise.app.model.enums.ActiveStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class BulkStatusResponse {
+
+    private ActiveStatus active;
+    private int affected;
+    private int chunks;
+}
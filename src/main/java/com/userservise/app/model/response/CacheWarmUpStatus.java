@@ -0,0 +1,15 @@
+package com.userservise.app.model.response;
+
+import com.userservise.app.model.enums.WarmUpState;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class CacheWarmUpStatus {
+
+    private WarmUpState state;
+    private int loadedUsers;
+    private int targetUsers;
+    private boolean ready;
+}
@@ -0,0 +1,28 @@
+package com.userservise.app.model.response;
+
+import com.userservise.app.utils.CursorCodec;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+import java.util.function.Function;
+
+@Data
+@AllArgsConstructor
+public class SliceResponse<T> {
+
+    private List<T> content;
+    private int size;
+    private boolean hasNext;
+    private String nextCursor;
+
+    public static <T> SliceResponse<T> of(Slice<T> slice, Function<T, Integer> idExtractor) {
+        List<T> content = slice.getContent();
+        String nextCursor = slice.hasNext() && !content.isEmpty()
+                ? CursorCodec.encode(idExtractor.apply(content.getLast()))
+                : null;
+
+        return new SliceResponse<>(content, content.size(), slice.hasNext(), nextCursor);
+    }
+}
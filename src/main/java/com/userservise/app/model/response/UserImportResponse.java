@@ -0,0 +1,16 @@
+package com.userservise.app.model.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class UserImportResponse {
+
+    private int total;
+    private int created;
+    private int failed;
+    private List<UserImportRowResult> rows;
+}
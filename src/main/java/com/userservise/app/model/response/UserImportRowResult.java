@@ -0,0 +1,16 @@
+package com.userservise.app.model.response;
+
+import com.userservise.app.model.enums.ImportStatus;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class UserImportRowResult {
+
+    private int index;
+    private Integer userId;
+    private String email;
+    private ImportStatus status;
+    private String error;
+}
@@ -1,11 +1,15 @@
 package com.userservise.app.repository;
 
 import com.userservise.app.model.entity.Card;
+import com.userservise.app.model.enums.ActiveStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,8 +21,106 @@ public interface CardRepository extends JpaRepository<Card, Integer>, JpaSpecifi
 
     List<Card> findCardsByOwnerUserId(Integer id);
 
+    @Query("select c from Card c join fetch c.owner o where o.userId in :userIds order by c.id")
+    List<Card> findCardsByOwnerUserIdIn(Collection<Integer> userIds);
+
+    // The owner is referenced by user_id rather than its primary key, so Hibernate would select each one separately.
+    @Query("select c from Card c join fetch c.owner where c.id in :ids")
+    List<Card> findCardsWithOwnerByIdIn(Collection<Integer> ids);
+
     Boolean existsCardByNumber(String number);
 
-    @Query("SELECT c.number FROM Card c")
-    List<String> findAllCardsByNumber();
+    // Takes the number only if no card holds it yet, so two concurrent allocations cannot both get
+    // it; an empty result means it was taken and another number should be tried.
+    @Query(value = """
+            insert into user_service.payment_cards (user_id, number, holder, expiration_date, active, created_at, updated_at)
+            values (:userId, :number, :holder, :expirationDate, :active, localtimestamp, localtimestamp)
+            on conflict (number) do nothing
+            returning id, user_id as "ownerId", number, holder, expiration_date as "expirationDate",
+                      created_at as "createdAt", updated_at as "updatedAt", active""", nativeQuery = true)
+    Optional<CardRow> insertCard(Integer userId, String number, String holder, LocalDate expirationDate, String active);
+
+    @Query("select c.owner.userId from Card c where c.id = :id")
+    Optional<Integer> findOwnerUserIdById(Integer id);
+
+    // One round trip: sets the status, moves the owner's ETag stamp and returns the changed row.
+    @Query(value = """
+            with card as (
+                update user_service.payment_cards set active = :active, updated_at = localtimestamp
+                where id = :id
+                returning *),
+            owner as (
+                update user_service.users set version = nextval('user_service.users_version_seq')
+                where user_id = (select user_id from card))
+            select id, user_id as "ownerId", number, holder, expiration_date as "expirationDate", active,
+                   created_at as "createdAt", updated_at as "updatedAt"
+            from card""", nativeQuery = true)
+    Optional<CardRow> updateActive(Integer id, String active);
+
+    // Chunks of a bulk status change. Cards already in the status are skipped, the owners of the
+    // changed cards get a new ETag stamp, and the changed ids come back for cache eviction.
+    @Query(value = """
+            with changed as (
+                update user_service.payment_cards set active = :active, updated_at = localtimestamp
+                where id in (:ids) and active <> :active
+                returning id, user_id),
+            owners as (
+                update user_service.users set version = nextval('user_service.users_version_seq')
+                where user_id in (select user_id from changed))
+            select id, user_id as "ownerId" from changed""", nativeQuery = true)
+    List<ChangedCard> updateActiveByIdIn(Collection<Integer> ids, String active);
+
+    @Query(value = """
+            with changed as (
+                update user_service.payment_cards set active = :active, updated_at = localtimestamp
+                where user_id in (:userIds) and active <> :active
+                returning id, user_id),
+            owners as (
+                update user_service.users set version = nextval('user_service.users_version_seq')
+                where user_id in (select user_id from changed))
+            select id, user_id as "ownerId" from changed""", nativeQuery = true)
+    List<ChangedCard> updateActiveByOwnerUserIdIn(Collection<Integer> userIds, String active);
+
+    // The pattern comes from LikePatterns, like the holder search; the lowest ids go first.
+    @Query(value = """
+            with changed as (
+                update user_service.payment_cards set active = :active, updated_at = localtimestamp
+                where id in (
+                    select id from user_service.payment_cards
+                    where lower(holder) like :holderPattern escape '\\' and active <> :active
+                    order by id
+                    limit :limit)
+                and active <> :active
+                returning id, user_id),
+            owners as (
+                update user_service.users set version = nextval('user_service.users_version_seq')
+                where user_id in (select user_id from changed))
+            select id, user_id as "ownerId" from changed""", nativeQuery = true)
+    List<ChangedCard> updateActiveByHolder(String holderPattern, String active, int limit);
+
+    interface ChangedCard {
+
+        Integer getId();
+
+        Integer getOwnerId();
+    }
+
+    interface CardRow {
+
+        Integer getId();
+
+        Integer getOwnerId();
+
+        String getNumber();
+
+        String getHolder();
+
+        LocalDate getExpirationDate();
+
+        ActiveStatus getActive();
+
+        LocalDateTime getCreatedAt();
+
+        LocalDateTime getUpdatedAt();
+    }
 }
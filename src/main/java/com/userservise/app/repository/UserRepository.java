@@ -1,13 +1,27 @@
 package com.userservise.app.repository;
 
 import com.userservise.app.model.entity.User;
+import com.userservise.app.model.enums.ActiveStatus;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Integer>, JpaSpecificationExecutor<User> {
@@ -17,9 +31,136 @@ public interface UserRepository extends JpaRepository<User, Integer>, JpaSpecifi
 
     Boolean existsByUserId(Integer userId);
 
-    void deleteUserByUserId(Integer userId);
-
     // JPQL
     @Query("select u from User u where u.userId = :userId")
     Optional<User> findUserByUserId(Integer userId);
+
+    // Row lock on the owner serializes card creation per user, so the card limit holds under concurrency.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select u from User u where u.userId = :userId")
+    Optional<User> findUserByUserIdForUpdate(Integer userId);
+
+    @Query("select count(c) from Card c where c.owner.userId = :userId")
+    long countCardsByUserId(Integer userId);
+
+    @Query("select c.id from Card c where c.owner.userId in :userIds")
+    List<Integer> findCardIdsByUserIdIn(Collection<Integer> userIds);
+
+    // Single statement; payment_cards rows are removed by the ON DELETE CASCADE foreign key.
+    @Modifying
+    @Query("delete from User u where u.userId in :userIds")
+    int deleteUsersByUserIdIn(Collection<Integer> userIds);
+
+    // Moves the ETag stamp of a user; the row lock it takes orders concurrent changes to the same user.
+    @Query(value = """
+            update user_service.users set version = nextval('user_service.users_version_seq')
+            where user_id = :userId
+            returning version""", nativeQuery = true)
+    Optional<Long> bumpVersion(Integer userId);
+
+    // One round trip: sets the status, moves the ETag stamp and returns the user joined with its cards,
+    // one row per card (a single row with null card columns when there are none).
+    @Query(value = """
+            with u as (
+                update user_service.users
+                set active = :active, updated_at = localtimestamp, version = nextval('user_service.users_version_seq')
+                where user_id = :userId
+                returning *)
+            select u.user_id as "userId", u.name, u.surname, u.birth_date as "birthDate", u.email, u.active,
+                   u.created_at as "createdAt", u.updated_at as "updatedAt", u.version,
+                   c.id as "cardId", c.number as "cardNumber", c.holder as "cardHolder",
+                   c.expiration_date as "cardExpirationDate", c.active as "cardActive",
+                   c.created_at as "cardCreatedAt", c.updated_at as "cardUpdatedAt"
+            from u left join user_service.payment_cards c on c.user_id = u.user_id
+            order by c.id""", nativeQuery = true)
+    List<UserCardRow> updateActive(Integer userId, String active);
+
+    // Chunks of a bulk status change. Users already in the status are skipped; the changed ones get a
+    // new ETag stamp and their ids come back for cache eviction.
+    @Query(value = """
+            update user_service.users
+            set active = :active, updated_at = localtimestamp, version = nextval('user_service.users_version_seq')
+            where user_id in (:userIds) and active <> :active
+            returning user_id""", nativeQuery = true)
+    List<Integer> updateActiveByUserIdIn(Collection<Integer> userIds, String active);
+
+    // A null pattern matches everything; patterns come from LikePatterns, like the name search.
+    @Query(value = """
+            update user_service.users
+            set active = :active, updated_at = localtimestamp, version = nextval('user_service.users_version_seq')
+            where user_id in (
+                select user_id from user_service.users
+                where (cast(:namePattern as text) is null or lower(name) like cast(:namePattern as text) escape '\\')
+                and (cast(:surnamePattern as text) is null or lower(surname) like cast(:surnamePattern as text) escape '\\')
+                and active <> :active
+                order by id
+                limit :limit)
+            and active <> :active
+            returning user_id""", nativeQuery = true)
+    List<Integer> updateActiveByName(String namePattern, String surnamePattern, String active, int limit);
+
+    @Query("select distinct u from User u left join fetch u.cards where u.userId in :userIds")
+    List<User> findUsersWithCardsByUserIdIn(Collection<Integer> userIds);
+
+    @Query("select u.email from User u where u.email in :emails")
+    Set<String> findExistingEmails(Collection<String> emails);
+
+    @Query("select u.userId from User u where u.userId in :userIds")
+    Set<Integer> findExistingUserIds(Collection<Integer> userIds);
+
+    // Most recently updated first; the cache warm-up pages through these by (updatedAt, id).
+    @Query("select u from User u where u.updatedAt is not null order by u.updatedAt desc, u.id desc")
+    List<User> findRecentlyUpdated(Limit limit);
+
+    // How many users the warm-up can page through; the same filter as findRecentlyUpdated.
+    long countByUpdatedAtIsNotNull();
+
+    @Query("""
+            select u from User u
+            where (u.updatedAt, u.id) < (:updatedAt, :id)
+            order by u.updatedAt desc, u.id desc""")
+    List<User> findRecentlyUpdatedBefore(LocalDateTime updatedAt, Integer id, Limit limit);
+
+    // One row per card (or per user without cards), grouped by user so the caller can stream it.
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select u, c from User u left join u.cards c left join fetch c.owner order by u.userId, c.id")
+    Stream<Object[]> streamAllWithCards();
+
+    interface UserCardRow {
+
+        Integer getUserId();
+
+        String getName();
+
+        String getSurname();
+
+        LocalDate getBirthDate();
+
+        String getEmail();
+
+        ActiveStatus getActive();
+
+        LocalDateTime getCreatedAt();
+
+        LocalDateTime getUpdatedAt();
+
+        Long getVersion();
+
+        Integer getCardId();
+
+        String getCardNumber();
+
+        String getCardHolder();
+
+        LocalDate getCardExpirationDate();
+
+        ActiveStatus getCardActive();
+
+        LocalDateTime getCardCreatedAt();
+
+        LocalDateTime getCardUpdatedAt();
+    }
 }
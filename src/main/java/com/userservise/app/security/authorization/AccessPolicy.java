@@ -0,0 +1,32 @@
+package com.userservise.app.security.authorization;
+
+import com.userservise.app.security.model.Role;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Who may call a controller method: principals with any of {@link #roles()}, or, when
+ * {@link #owner()} is set, the owner of the user or card(s) named by the {@link #param()} argument.
+ * The argument may be an id or a {@link com.userservise.app.model.dto.BatchRequest}.
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface AccessPolicy {
+
+    Role[] roles() default Role.ADMIN;
+
+    Ownership owner() default Ownership.NONE;
+
+    String param() default "";
+
+    enum Ownership {
+        NONE,
+        USER,
+        CARD
+    }
+}
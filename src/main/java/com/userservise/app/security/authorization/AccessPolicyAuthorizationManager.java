@@ -0,0 +1,115 @@
+package com.userservise.app.security.authorization;
+
+import com.userservise.app.model.dto.BatchRequest;
+import com.userservise.app.security.model.CustomUserDetails;
+import com.userservise.app.security.model.Role;
+import com.userservise.app.service.CardService;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.DefaultParameterNameDiscoverer;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
+import org.springframework.security.core.Authentication;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Evaluates {@link AccessPolicy} rules. Each annotated method is compiled once into a role mask
+ * and the position of the argument holding the owned id, so a request only costs an AND, an
+ * array read and an id comparison (plus the card owner lookup for card rules).
+ */
+public class AccessPolicyAuthorizationManager implements AuthorizationManager<MethodInvocation> {
+
+    private static final AuthorizationDecision GRANTED = new AuthorizationDecision(true);
+    private static final AuthorizationDecision DENIED = new AuthorizationDecision(false);
+
+    private final Supplier<CardService> cardService;
+    private final ParameterNameDiscoverer parameterNames = new DefaultParameterNameDiscoverer();
+    private final Map<Method, Rule> rules = new ConcurrentHashMap<>();
+
+    public AccessPolicyAuthorizationManager(Supplier<CardService> cardService) {
+        this.cardService = cardService;
+    }
+
+    @Override
+    public AuthorizationDecision check(Supplier<Authentication> authentication, MethodInvocation invocation) {
+        Rule rule = rules.computeIfAbsent(invocation.getMethod(), method -> compile(method, invocation.getThis()));
+
+        Authentication current = authentication.get();
+        if (current == null || !(current.getPrincipal() instanceof CustomUserDetails principal))
+            return DENIED;
+        if ((principal.getRoleMask() & rule.roleMask()) != 0)
+            return GRANTED;
+        if (rule.ownership() == AccessPolicy.Ownership.NONE)
+            return DENIED;
+
+        Object argument = invocation.getArguments()[rule.argumentIndex()];
+        boolean owner = switch (rule.ownership()) {
+            case USER -> rule.batch()
+                    ? ownsAllUsers(principal, ids(argument))
+                    : argument instanceof Integer userId && principal.getId() == userId;
+            case CARD -> rule.batch()
+                    ? cardService.get().isOwnerOfAll(ids(argument), userId(principal))
+                    : cardService.get().isOwner((Integer) argument, userId(principal));
+            case NONE -> false;
+        };
+
+        return owner ? GRANTED : DENIED;
+    }
+
+    private Rule compile(Method method, Object target) {
+        Method specificMethod = target != null ? AopUtils.getMostSpecificMethod(method, target.getClass()) : method;
+        AccessPolicy policy = AnnotationUtils.findAnnotation(specificMethod, AccessPolicy.class);
+        if (policy == null)
+            throw new IllegalStateException("No @AccessPolicy on " + specificMethod);
+
+        int roleMask = Role.maskOf(policy.roles());
+        if (policy.owner() == AccessPolicy.Ownership.NONE)
+            return new Rule(roleMask, AccessPolicy.Ownership.NONE, -1, false);
+
+        String[] names = parameterNames.getParameterNames(specificMethod);
+        for (int i = 0; names != null && i < names.length; i++) {
+            if (!names[i].equals(policy.param()))
+                continue;
+
+            Class<?> type = specificMethod.getParameterTypes()[i];
+            if (type != Integer.class && type != BatchRequest.class)
+                throw new IllegalStateException("@AccessPolicy param '" + policy.param() + "' of " + specificMethod
+                        + " must be an Integer or a BatchRequest");
+
+            return new Rule(roleMask, policy.owner(), i, type == BatchRequest.class);
+        }
+
+        throw new IllegalStateException("@AccessPolicy param '" + policy.param() + "' not found on " + specificMethod);
+    }
+
+    // An empty list passes here and is rejected by the service's batch size check.
+    private static boolean ownsAllUsers(CustomUserDetails principal, List<Integer> userIds) {
+        if (userIds == null)
+            return false;
+        for (Integer userId : userIds)
+            if (userId == null || principal.getId() != userId)
+                return false;
+
+        return true;
+    }
+
+    private static List<Integer> ids(Object argument) {
+        return argument instanceof BatchRequest request ? request.getIds() : null;
+    }
+
+    // Principal ids outside the int range cannot own anything.
+    private static Integer userId(CustomUserDetails principal) {
+        long id = principal.getId();
+        return id == (int) id ? (int) id : Integer.MIN_VALUE;
+    }
+
+    private record Rule(int roleMask, AccessPolicy.Ownership ownership, int argumentIndex, boolean batch) {
+    }
+}
@@ -1,12 +1,13 @@
 package com.userservise.app.security.filter;
 
 import com.userservise.app.security.model.CustomUserDetails;
+import com.userservise.app.security.model.Role;
+import com.userservise.app.security.model.TrustedHeaderAuthentication;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.NonNull;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -19,6 +20,29 @@ import java.util.List;
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
+    // Nothing under these paths reads the caller's identity.
+    private static final String[] SKIPPED_PATHS = {"/actuator", "/favicon.ico"};
+
+    // The default is concatenated on every request.
+    private static final String ALREADY_FILTERED = JwtAuthenticationFilter.class.getName() + ALREADY_FILTERED_SUFFIX;
+
+    @Override
+    protected String getAlreadyFilteredAttributeName() {
+        return ALREADY_FILTERED;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        String uri = request.getRequestURI();
+        int offset = request.getContextPath().length();
+        for (String path : SKIPPED_PATHS)
+            if (uri.startsWith(path, offset)
+                    && (uri.length() == offset + path.length() || uri.charAt(offset + path.length()) == '/'))
+                return true;
+
+        return false;
+    }
+
     @Override
     protected void doFilterInternal(HttpServletRequest request,
                                     @NonNull HttpServletResponse response,
@@ -39,17 +63,16 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             return;
         }
 
-        List<GrantedAuthority> authorities = List.of(new SimpleGrantedAuthority("ROLE_" + role));
-
         CustomUserDetails userDetails = new CustomUserDetails(Long.parseLong(userId), role);
-        UsernamePasswordAuthenticationToken authentication = new UsernamePasswordAuthenticationToken(
-                userDetails,
-                null,
-                authorities
-        );
-
-        SecurityContextHolder.getContext().setAuthentication(authentication);
+        SecurityContextHolder.getContext().setAuthentication(new TrustedHeaderAuthentication(userDetails, authorities(role)));
 
         filterChain.doFilter(request, response);
     }
-}
\ No newline at end of file
+
+    private static List<GrantedAuthority> authorities(String role) {
+        Role knownRole = Role.find(role);
+        return knownRole != null
+                ? knownRole.authorities()
+                : List.of(new SimpleGrantedAuthority("ROLE_" + role));
+    }
+}
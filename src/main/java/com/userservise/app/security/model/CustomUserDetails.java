@@ -1,6 +1,5 @@
 package com.userservise.app.security.model;
 
-import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.Setter;
 import org.springframework.security.core.GrantedAuthority;
@@ -11,11 +10,17 @@ import java.util.List;
 
 @Setter
 @Getter
-@AllArgsConstructor
 public class CustomUserDetails implements UserDetails {
 
     private final long id;
     private final String role;
+    private final int roleMask;
+
+    public CustomUserDetails(long id, String role) {
+        this.id = id;
+        this.role = role;
+        this.roleMask = Role.maskOf(role);
+    }
 
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
@@ -0,0 +1,50 @@
+package com.userservise.app.security.model;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.util.List;
+
+/**
+ * Roles as bits, so a principal's roles are resolved once when it is built and a role check
+ * is a single AND. The granted authorities of each role are built once and shared.
+ */
+public enum Role {
+    USER,
+    ADMIN;
+
+    private static final Role[] VALUES = values();
+
+    private final int mask = 1 << ordinal();
+    private final List<GrantedAuthority> authorities = List.of(new SimpleGrantedAuthority("ROLE_" + name()));
+
+    public int mask() {
+        return mask;
+    }
+
+    public List<GrantedAuthority> authorities() {
+        return authorities;
+    }
+
+    public static int maskOf(Role... roles) {
+        int mask = 0;
+        for (Role role : roles)
+            mask |= role.mask;
+
+        return mask;
+    }
+
+    // Unknown role names grant nothing.
+    public static int maskOf(String name) {
+        Role role = find(name);
+        return role != null ? role.mask : 0;
+    }
+
+    public static Role find(String name) {
+        for (Role role : VALUES)
+            if (role.name().equals(name))
+                return role;
+
+        return null;
+    }
+}
@@ -0,0 +1,62 @@
+package com.userservise.app.security.model;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Authentication taken from gateway headers that were already verified upstream. Immutable and
+ * always authenticated; for known roles the authority list is the shared one from {@link Role}.
+ */
+public final class TrustedHeaderAuthentication implements Authentication {
+
+    private final CustomUserDetails principal;
+    private final List<GrantedAuthority> authorities;
+
+    public TrustedHeaderAuthentication(CustomUserDetails principal, List<GrantedAuthority> authorities) {
+        this.principal = principal;
+        this.authorities = authorities;
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return authorities;
+    }
+
+    @Override
+    public Object getCredentials() {
+        return null;
+    }
+
+    @Override
+    public Object getDetails() {
+        return null;
+    }
+
+    @Override
+    public CustomUserDetails getPrincipal() {
+        return principal;
+    }
+
+    @Override
+    public boolean isAuthenticated() {
+        return true;
+    }
+
+    @Override
+    public void setAuthenticated(boolean isAuthenticated) {
+        throw new IllegalArgumentException("TrustedHeaderAuthentication is immutable");
+    }
+
+    @Override
+    public String getName() {
+        return principal.getUsername();
+    }
+
+    @Override
+    public String toString() {
+        return "TrustedHeaderAuthentication[id=" + principal.getId() + ", authorities=" + authorities + "]";
+    }
+}
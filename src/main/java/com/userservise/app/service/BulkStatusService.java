@@ -0,0 +1,13 @@
+package com.userservise.app.service;
+
+import com.userservise.app.model.dto.CardStatusRequest;
+import com.userservise.app.model.dto.UserStatusRequest;
+import com.userservise.app.model.enums.ActiveStatus;
+import com.userservise.app.model.response.BulkStatusResponse;
+
+public interface BulkStatusService {
+
+    BulkStatusResponse changeCardStatus(CardStatusRequest request, ActiveStatus status);
+
+    BulkStatusResponse changeUserStatus(UserStatusRequest request, ActiveStatus status);
+}
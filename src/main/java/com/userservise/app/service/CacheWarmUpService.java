@@ -0,0 +1,10 @@
+package com.userservise.app.service;
+
+import com.userservise.app.model.response.CacheWarmUpStatus;
+
+public interface CacheWarmUpService {
+
+    CacheWarmUpStatus warmUp();
+
+    CacheWarmUpStatus getStatus();
+}
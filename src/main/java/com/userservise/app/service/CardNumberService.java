@@ -0,0 +1,10 @@
+package com.userservise.app.service;
+
+import java.util.Optional;
+import java.util.function.Function;
+
+public interface CardNumberService {
+
+    // The insert returns empty when the number is already taken, and is then retried with another one.
+    <T> T allocate(Function<String, Optional<T>> insert);
+}
@@ -2,8 +2,10 @@ package com.userservise.app.service;
 
 
 import com.userservise.app.model.dto.CardDto;
+import com.userservise.app.model.response.BatchResponse;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 import java.util.List;
 
@@ -13,8 +15,12 @@ public interface CardService {
 
     CardDto getCardById(Integer id);
 
+    BatchResponse<CardDto> getCardsByIds(List<Integer> ids);
+
     Page<CardDto> getAllCards(String holder, Pageable pageable);
 
+    Slice<CardDto> scrollCards(String holder, Integer afterId, int limit);
+
     List<CardDto> getAllByUserId(Integer userId);
 
     CardDto updateCard(Integer id, CardDto updateCard);
@@ -26,4 +32,6 @@ public interface CardService {
     void deleteCard(Integer id);
 
     Boolean isOwner(Integer cardId, Integer userId);
+
+    Boolean isOwnerOfAll(List<Integer> cardIds, Integer userId);
 }
@@ -0,0 +1,182 @@
+package com.userservise.app.service.Impl;
+
+import com.userservise.app.model.constants.ErrorMessage;
+import com.userservise.app.model.dto.CardStatusRequest;
+import com.userservise.app.model.dto.UserStatusRequest;
+import com.userservise.app.model.enums.ActiveStatus;
+import com.userservise.app.model.exception.InvalidDataException;
+import com.userservise.app.model.response.BulkStatusResponse;
+import com.userservise.app.repository.CardRepository;
+import com.userservise.app.repository.UserRepository;
+import com.userservise.app.service.BulkStatusService;
+import com.userservise.app.utils.specifications.LikePatterns;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Status changes over many rows. Every chunk is one set-based UPDATE in its own transaction, and
+ * its cache evictions go out together after the commit, so a failure keeps the chunks before it.
+ */
+@Service
+public class BulkStatusServiceImpl implements BulkStatusService {
+
+    private static final int MAX_IDS = 10_000;
+    private static final String CARDS_CACHE = "cards";
+    private static final String CARDS_BY_USER_CACHE = "cardsByUser";
+    private static final String USERS_CACHE = "users";
+
+    private final CardRepository cardRepository;
+    private final UserRepository userRepository;
+    private final CacheManager cacheManager;
+    private final TransactionTemplate transactionTemplate;
+    private final int chunkSize;
+
+    public BulkStatusServiceImpl(CardRepository cardRepository,
+                                 UserRepository userRepository,
+                                 CacheManager cacheManager,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${status.bulk.chunk-size:500}") int chunkSize) {
+        this.cardRepository = cardRepository;
+        this.userRepository = userRepository;
+        this.cacheManager = cacheManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public BulkStatusResponse changeCardStatus(CardStatusRequest request, ActiveStatus status) {
+        String active = status.name();
+        boolean byHolder = hasText(request.getHolder());
+        requireOneSelector("cardIds, userIds, holder", request.getCardIds() != null, request.getUserIds() != null, byHolder);
+
+        BulkRun run = new BulkRun(status);
+        if (request.getCardIds() != null)
+            run.byIds(distinct(request.getCardIds()), ids -> evictCards(cardRepository.updateActiveByIdIn(ids, active)));
+        else if (request.getUserIds() != null)
+            run.byIds(distinct(request.getUserIds()), ids -> evictCards(cardRepository.updateActiveByOwnerUserIdIn(ids, active)));
+        else {
+            String holder = LikePatterns.containsIgnoreCase(request.getHolder());
+            run.byFilter(() -> evictCards(cardRepository.updateActiveByHolder(holder, active, chunkSize)));
+        }
+
+        return run.response();
+    }
+
+    @Override
+    public BulkStatusResponse changeUserStatus(UserStatusRequest request, ActiveStatus status) {
+        String active = status.name();
+        boolean byName = hasText(request.getFirstName()) || hasText(request.getSurname());
+        requireOneSelector("userIds, firstName/surname", request.getUserIds() != null, byName);
+
+        BulkRun run = new BulkRun(status);
+        if (request.getUserIds() != null)
+            run.byIds(distinct(request.getUserIds()), ids -> evictUsers(userRepository.updateActiveByUserIdIn(ids, active)));
+        else {
+            String name = hasText(request.getFirstName()) ? LikePatterns.containsIgnoreCase(request.getFirstName()) : null;
+            String surname = hasText(request.getSurname()) ? LikePatterns.containsIgnoreCase(request.getSurname()) : null;
+            run.byFilter(() -> evictUsers(userRepository.updateActiveByName(name, surname, active, chunkSize)));
+        }
+
+        return run.response();
+    }
+
+    // Card DTOs are embedded in the owner's views; the card list goes before the user, as for single changes.
+    private int evictCards(List<CardRepository.ChangedCard> changed) {
+        LinkedHashSet<Integer> owners = new LinkedHashSet<>();
+        for (CardRepository.ChangedCard card : changed) {
+            evict(CARDS_CACHE, card.getId());
+            owners.add(card.getOwnerId());
+        }
+        for (Integer owner : owners)
+            evict(CARDS_BY_USER_CACHE, owner);
+        for (Integer owner : owners)
+            evict(USERS_CACHE, owner);
+
+        return changed.size();
+    }
+
+    private int evictUsers(List<Integer> changed) {
+        for (Integer userId : changed)
+            evict(USERS_CACHE, userId);
+
+        return changed.size();
+    }
+
+    private void evict(String cacheName, Integer key) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null)
+            cache.evict(key);
+    }
+
+    private static void requireOneSelector(String selectors, boolean... given) {
+        int count = 0;
+        for (boolean selector : given)
+            if (selector)
+                count++;
+
+        if (count != 1)
+            throw new InvalidDataException(ErrorMessage.INVALID_BULK_SELECTOR.getMessage(selectors));
+    }
+
+    private static List<Integer> distinct(List<Integer> ids) {
+        if (ids.isEmpty() || ids.size() > MAX_IDS || ids.stream().anyMatch(Objects::isNull))
+            throw new InvalidDataException(ErrorMessage.INVALID_BATCH_SIZE.getMessage(MAX_IDS));
+
+        return new ArrayList<>(new LinkedHashSet<>(ids));
+    }
+
+    private static boolean hasText(String value) {
+        return value != null && !value.isBlank();
+    }
+
+    private class BulkRun {
+
+        private final ActiveStatus status;
+        private int affected;
+        private int chunks;
+
+        BulkRun(ActiveStatus status) {
+            this.status = status;
+        }
+
+        void byIds(List<Integer> ids, Function<Collection<Integer>, Integer> update) {
+            for (int from = 0; from < ids.size(); from += chunkSize) {
+                List<Integer> chunk = ids.subList(from, Math.min(from + chunkSize, ids.size()));
+                run(() -> update.apply(chunk));
+            }
+        }
+
+        // Rows already in the target status no longer match, so a short chunk means the filter is drained.
+        void byFilter(Supplier<Integer> update) {
+            int changed;
+            do {
+                changed = run(update);
+            } while (changed == chunkSize);
+        }
+
+        private int run(Supplier<Integer> update) {
+            Integer changed = transactionTemplate.execute(tx -> update.get());
+            int count = changed != null ? changed : 0;
+            affected += count;
+            chunks++;
+
+            return count;
+        }
+
+        BulkStatusResponse response() {
+            return new BulkStatusResponse(status, affected, chunks);
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package com.userservise.app.service.Impl;
+
+import com.userservise.app.cache.TwoLevelCacheManager;
+import com.userservise.app.mapper.CardMapper;
+import com.userservise.app.mapper.UserMapper;
+import com.userservise.app.model.dto.CardDto;
+import com.userservise.app.model.entity.Card;
+import com.userservise.app.model.entity.User;
+import com.userservise.app.model.enums.WarmUpState;
+import com.userservise.app.model.response.CacheWarmUpStatus;
+import com.userservise.app.repository.CardRepository;
+import com.userservise.app.repository.UserRepository;
+import com.userservise.app.service.CacheWarmUpService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Loads the most recently updated users and their cards into the {@code users}, {@code cards} and
+ * {@code cardsByUser} caches, so a fresh node or a flushed Redis does not send every first read to
+ * Postgres. The node reports ready once the first run has loaded the configured fraction.
+ */
+@Slf4j
+@Service
+public class CacheWarmUpServiceImpl implements CacheWarmUpService {
+
+    private final UserRepository userRepository;
+    private final CardRepository cardRepository;
+    private final UserMapper userMapper;
+    private final CardMapper cardMapper;
+    private final TwoLevelCacheManager cacheManager;
+    private final TransactionTemplate transactionTemplate;
+    private final TaskExecutor taskExecutor;
+    private final boolean enabled;
+    private final int maxUsers;
+    private final int batchSize;
+    private final double readyFraction;
+    private final Duration timeToLive;
+
+    private final AtomicReference<WarmUpState> state = new AtomicReference<>(WarmUpState.PENDING);
+    private final AtomicInteger loadedUsers = new AtomicInteger();
+    private volatile int targetUsers;
+    private volatile boolean warmedOnce;
+
+    public CacheWarmUpServiceImpl(UserRepository userRepository,
+                                  CardRepository cardRepository,
+                                  UserMapper userMapper,
+                                  CardMapper cardMapper,
+                                  TwoLevelCacheManager cacheManager,
+                                  PlatformTransactionManager transactionManager,
+                                  @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME) TaskExecutor taskExecutor,
+                                  @Value("${cache.warm-up.enabled:true}") boolean enabled,
+                                  @Value("${cache.warm-up.max-users:10000}") int maxUsers,
+                                  @Value("${cache.warm-up.batch-size:500}") int batchSize,
+                                  @Value("${cache.warm-up.ready-fraction:0.9}") double readyFraction,
+                                  @Value("${cache.warm-up.ttl:2m}") Duration timeToLive) {
+        this.userRepository = userRepository;
+        this.cardRepository = cardRepository;
+        this.userMapper = userMapper;
+        this.cardMapper = cardMapper;
+        this.cacheManager = cacheManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.taskExecutor = taskExecutor;
+        this.enabled = enabled;
+        this.maxUsers = maxUsers;
+        this.batchSize = batchSize;
+        this.readyFraction = readyFraction;
+        this.timeToLive = timeToLive;
+        this.warmedOnce = !enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUpOnStartup() {
+        if (enabled)
+            warmUp();
+    }
+
+    @Override
+    public CacheWarmUpStatus warmUp() {
+        WarmUpState previous = state.getAndSet(WarmUpState.RUNNING);
+        if (previous != WarmUpState.RUNNING) {
+            loadedUsers.set(0);
+            taskExecutor.execute(this::run);
+        }
+
+        return getStatus();
+    }
+
+    @Override
+    public CacheWarmUpStatus getStatus() {
+        return new CacheWarmUpStatus(state.get(), loadedUsers.get(), targetUsers, isReady());
+    }
+
+    private boolean isReady() {
+        if (warmedOnce)
+            return true;
+
+        // Only the first run gates readiness; a later one must not take every node out of service at once.
+        WarmUpState current = state.get();
+        if (current == WarmUpState.COMPLETED || current == WarmUpState.FAILED || current == WarmUpState.RUNNING
+                && targetUsers > 0 && loadedUsers.get() >= Math.ceil(targetUsers * readyFraction))
+            warmedOnce = true;
+
+        return warmedOnce;
+    }
+
+    private void run() {
+        long start = System.nanoTime();
+        try {
+            targetUsers = (int) Math.min(maxUsers, userRepository.countByUpdatedAtIsNotNull());
+
+            Batch batch = null;
+            while (loadedUsers.get() < targetUsers) {
+                int limit = Math.min(batchSize, targetUsers - loadedUsers.get());
+                Batch previous = batch;
+                long readAt = cacheManager.invalidationClock();
+                batch = transactionTemplate.execute(status -> loadBatch(previous, limit));
+                if (batch == null || batch.users().isEmpty())
+                    break;
+
+                cacheManager.preload("users", batch.users(), readAt, timeToLive);
+                cacheManager.preload("cards", batch.cards(), readAt, timeToLive);
+                cacheManager.preload("cardsByUser", batch.cardsByUser(), readAt, timeToLive);
+                loadedUsers.addAndGet(batch.users().size());
+            }
+
+            state.set(WarmUpState.COMPLETED);
+            log.info("Cache warm-up loaded {} users in {} ms", loadedUsers.get(), (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException e) {
+            state.set(WarmUpState.FAILED);
+            log.warn("Cache warm-up failed after {} users: {}", loadedUsers.get(), e.getMessage());
+        }
+    }
+
+    private Batch loadBatch(Batch previous, int limit) {
+        List<User> users = previous == null
+                ? userRepository.findRecentlyUpdated(Limit.of(limit))
+                : userRepository.findRecentlyUpdatedBefore(previous.lastUpdatedAt(), previous.lastId(), Limit.of(limit));
+        if (users.isEmpty())
+            return new Batch(Map.of(), Map.of(), Map.of(), null, null);
+
+        Map<Integer, List<Card>> cardsByOwner = new HashMap<>();
+        for (Card card : cardRepository.findCardsByOwnerUserIdIn(users.stream().map(User::getUserId).toList()))
+            cardsByOwner.computeIfAbsent(card.getOwner().getUserId(), id -> new ArrayList<>()).add(card);
+
+        Map<Integer, Object> userDtos = new LinkedHashMap<>();
+        Map<Integer, Object> cardDtos = new LinkedHashMap<>();
+        Map<Integer, Object> cardListDtos = new LinkedHashMap<>();
+        for (User user : users) {
+            List<Card> cards = cardsByOwner.getOrDefault(user.getUserId(), List.of());
+            List<CardDto> cardList = new ArrayList<>(cards.size());
+            for (Card card : cards) {
+                CardDto cardDto = cardMapper.toDto(card);
+                cardDtos.put(card.getId(), cardDto);
+                cardList.add(cardDto);
+            }
+
+            userDtos.put(user.getUserId(), userMapper.toDto(user, cards));
+            cardListDtos.put(user.getUserId(), cardList);
+        }
+
+        User last = users.getLast();
+        return new Batch(userDtos, cardDtos, cardListDtos, last.getUpdatedAt(), last.getId());
+    }
+
+    private record Batch(Map<Integer, Object> users,
+                         Map<Integer, Object> cards,
+                         Map<Integer, Object> cardsByUser,
+                         LocalDateTime lastUpdatedAt,
+                         Integer lastId) {
+    }
+}
@@ -0,0 +1,29 @@
+package com.userservise.app.service.Impl;
+
+import com.userservise.app.model.constants.ErrorMessage;
+import com.userservise.app.model.exception.DataExistException;
+import com.userservise.app.service.CardNumberService;
+import com.userservise.app.utils.CardNumberGenerator;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+import java.util.function.Function;
+
+// The insert itself claims the number against the unique index on payment_cards.number, so there is
+// no window between a check and the write, and the cost does not depend on how many cards exist.
+@Service
+public class CardNumberServiceImpl implements CardNumberService {
+
+    private static final int MAX_ATTEMPTS = 10;
+
+    @Override
+    public <T> T allocate(Function<String, Optional<T>> insert) {
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            Optional<T> inserted = insert.apply(CardNumberGenerator.generate());
+            if (inserted.isPresent())
+                return inserted.get();
+        }
+
+        throw new DataExistException(ErrorMessage.CARD_NUMBER_GENERATION_FAILED.getMessage(MAX_ATTEMPTS));
+    }
+}
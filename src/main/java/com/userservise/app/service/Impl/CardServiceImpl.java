@@ -1,5 +1,7 @@
 package com.userservise.app.service.Impl;
 
+import com.userservise.app.cache.CardOwnerIndex;
+import com.userservise.app.cache.TwoLevelCache;
 import com.userservise.app.mapper.CardMapper;
 import com.userservise.app.model.constants.ErrorMessage;
 import com.userservise.app.model.dto.CardDto;
@@ -9,56 +11,100 @@ import com.userservise.app.model.enums.ActiveStatus;
 import com.userservise.app.model.exception.DataExistException;
 import com.userservise.app.model.exception.InvalidDataException;
 import com.userservise.app.model.exception.NotFoundException;
+import com.userservise.app.model.response.BatchResponse;
 import com.userservise.app.repository.CardRepository;
 import com.userservise.app.repository.UserRepository;
+import com.userservise.app.service.CardNumberService;
 import com.userservise.app.service.CardService;
-import com.userservise.app.utils.CardNumberGenerator;
+import com.userservise.app.utils.MicroBatcher;
 import com.userservise.app.utils.specifications.CardSpecifications;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @RequiredArgsConstructor
 @Service
 public class CardServiceImpl implements CardService {
 
+    private static final int MAX_SCROLL_LIMIT = 100;
+    private static final int MAX_BATCH_SIZE = 100;
+    private static final int MAX_CARDS_PER_USER = 5;
+    private static final String USERS_CACHE = "users";
+    private static final String CARDS_BY_USER_CACHE = "cardsByUser";
+
     private final CardRepository cardRepository;
     private final CardMapper cardMapper;
     private final UserRepository userRepository;
+    private final CardNumberService cardNumberService;
+    private final CardOwnerIndex cardOwnerIndex;
+    private final CacheManager cacheManager;
+    private final MicroBatcher<Integer, CardDto> cardBatchLoader;
 
     @Override
     @Transactional
     @CachePut(value = "cards", key = "#result.id")
     public CardDto createCard(Integer userId) {
-        User user = userRepository.findUserByUserId(userId)
+        User user = userRepository.findUserByUserIdForUpdate(userId)
                 .orElseThrow(() -> new NotFoundException(ErrorMessage.USER_NOT_FOUND_BY_ID.getMessage(userId)));
 
-        if (user.getCards().size() >= 5)
+        if (userRepository.countCardsByUserId(userId) >= MAX_CARDS_PER_USER)
             throw new InvalidDataException(ErrorMessage.USER_CANNOT_HAVE_MORE_THAN_5_CARDS.getMessage(userId));
 
-        Card card = cardRepository.save(generateCard(user));
+        String holder = user.getName() + " " + user.getSurname();
+        LocalDate expirationDate = LocalDate.now().plusYears(4); // add 4 years
+        CardRepository.CardRow card = cardNumberService.allocate(number -> cardRepository.insertCard(
+                userId, number, holder, expirationDate, ActiveStatus.INACTIVE.name()));
+        cardOwnerIndex.register(card.getId(), userId);
+        ownerChanged(userId);
 
         return cardMapper.toDto(card);
     }
 
     @Override
-    @Transactional(readOnly = true)
-    @Cacheable(value = "cards", key = "#id")
+    @Cacheable(value = "cards", key = "#id", sync = true)
     public CardDto getCardById(Integer id) {
-        Card card = cardRepository.findById(id)
-                .orElseThrow(() -> new NotFoundException(ErrorMessage.CARD_NOT_FOUND_BY_ID.getMessage(id)));
+        CardDto card = cardBatchLoader.load(id);
+        if (card == null)
+            throw new NotFoundException(ErrorMessage.CARD_NOT_FOUND_BY_ID.getMessage(id));
 
-        return cardMapper.toDto(card);
+        return card;
+    }
+
+    @Override
+    public BatchResponse<CardDto> getCardsByIds(List<Integer> ids) {
+        validateBatch(ids);
+
+        Function<Set<Integer>, Map<Integer, CardDto>> loader = missingIds -> cardRepository.findCardsWithOwnerByIdIn(missingIds)
+                .stream()
+                .collect(Collectors.toMap(Card::getId, cardMapper::toDto));
+
+        Cache cache = cacheManager.getCache("cards");
+        Map<Integer, CardDto> cards = cache instanceof TwoLevelCache twoLevelCache
+                ? twoLevelCache.getAll(ids, loader)
+                : loader.apply(new LinkedHashSet<>(ids));
+
+        return BatchResponse.of(ids, cards);
     }
 
     @Override
@@ -73,6 +119,22 @@ public class CardServiceImpl implements CardService {
 
     @Override
     @Transactional(readOnly = true)
+    public Slice<CardDto> scrollCards(String holder, Integer afterId, int limit) {
+        if (limit < 1 || limit > MAX_SCROLL_LIMIT)
+            throw new InvalidDataException(ErrorMessage.INVALID_PAGE_LIMIT.getMessage(MAX_SCROLL_LIMIT));
+
+        Specification<Card> specification = CardSpecifications.hasHolder(holder)
+                .and(CardSpecifications.hasIdAfter(afterId));
+
+        Slice<Card> cards = cardRepository.findBy(specification, query -> query
+                .slice(PageRequest.of(0, limit, Sort.by("id"))));
+
+        return cards.map(cardMapper::toDto);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    @Cacheable(value = CARDS_BY_USER_CACHE, key = "#userId", sync = true)
     public List<CardDto> getAllByUserId(Integer userId) {
         List<Card> cards = cardRepository.findCardsByOwnerUserId(userId);
 
@@ -94,6 +156,8 @@ public class CardServiceImpl implements CardService {
         cardMapper.updateCard(requestUpdate, card);
         Card updatedCard = cardRepository.save(card);
 
+        ownerChanged(card.getOwner().getUserId());
+
         return cardMapper.toDto(updatedCard);
     }
 
@@ -101,26 +165,14 @@ public class CardServiceImpl implements CardService {
     @Transactional
     @CachePut(value = "cards", key = "#id")
     public CardDto activateCard(Integer id) {
-        Card card = cardRepository.findCardById(id)
-                .orElseThrow(() -> new NotFoundException(ErrorMessage.CARD_NOT_FOUND_BY_ID.getMessage(id)));
-
-        card.setActive(ActiveStatus.ACTIVE);
-        Card activatedCard = cardRepository.save(card);
-
-        return cardMapper.toDto(activatedCard);
+        return changeStatus(id, ActiveStatus.ACTIVE);
     }
 
     @Override
     @Transactional
     @CachePut(value = "cards", key = "#id")
     public CardDto deactivateCard(Integer id) {
-        Card card = cardRepository.findCardById(id)
-                .orElseThrow(() -> new NotFoundException(ErrorMessage.CARD_NOT_FOUND_BY_ID.getMessage(id)));
-
-        card.setActive(ActiveStatus.INACTIVE);
-        Card inactivatedCard = cardRepository.save(card);
-
-        return cardMapper.toDto(inactivatedCard);
+        return changeStatus(id, ActiveStatus.INACTIVE);
     }
 
     @Override
@@ -129,36 +181,61 @@ public class CardServiceImpl implements CardService {
     public void deleteCard(Integer id) {
         if (!cardRepository.existsById(id))
             throw new NotFoundException(ErrorMessage.CARD_NOT_FOUND_BY_ID.getMessage(id));
+        Optional<Integer> ownerId = cardOwnerIndex.findOwnerId(id);
         cardRepository.deleteById(id);
+        cardOwnerIndex.remove(id);
+        ownerId.ifPresent(this::ownerChanged);
     }
 
     @Override
     public Boolean isOwner(Integer cardId, Integer userId) {
         if (cardId == null || userId == null)
             throw new InvalidDataException("CardId and UserId cannot be null");
-        return cardRepository.findCardById(cardId)
-                .map(card -> card.getOwner().getUserId().equals(userId))
+        return cardOwnerIndex.findOwnerId(cardId)
+                .map(userId::equals)
                 .orElse(false);
     }
 
-    private Card generateCard (User user) {
-        Card card = new Card();
-        card.setOwner(user);
-        card.setNumber(generateCardNumber());
-        card.setHolder(user.getName() + " " + user.getSurname());
-        card.setExpirationDate(LocalDate.now().plusYears(4)); // add 4 years
-        card.setActive(ActiveStatus.INACTIVE);
+    @Override
+    public Boolean isOwnerOfAll(List<Integer> cardIds, Integer userId) {
+        validateBatch(cardIds);
+        if (userId == null)
+            throw new InvalidDataException("CardId and UserId cannot be null");
+        return cardIds.stream()
+                .allMatch(cardId -> cardOwnerIndex.findOwnerId(cardId)
+                        .map(userId::equals)
+                        .orElse(false));
+    }
+
+    private void validateBatch(List<Integer> ids) {
+        if (ids == null || ids.isEmpty() || ids.size() > MAX_BATCH_SIZE || ids.stream().anyMatch(Objects::isNull))
+            throw new InvalidDataException(ErrorMessage.INVALID_BATCH_SIZE.getMessage(MAX_BATCH_SIZE));
+    }
 
-        return card;
+    // A single UPDATE ... RETURNING that also moves the owner's stamp; @CachePut stores the DTO built from it.
+    private CardDto changeStatus(Integer id, ActiveStatus status) {
+        CardRepository.CardRow row = cardRepository.updateActive(id, status.name())
+                .orElseThrow(() -> new NotFoundException(ErrorMessage.CARD_NOT_FOUND_BY_ID.getMessage(id)));
+        evictOwnerViews(row.getOwnerId());
+
+        return cardMapper.toDto(row);
     }
 
-    private String generateCardNumber() {
-        List<String> existing = cardRepository.findAllCardsByNumber();
-        String cardNumber;
-        do {
-            cardNumber = CardNumberGenerator.generate();
-        } while (existing.contains(cardNumber));
+    // Cards are part of the owner's representation: move its ETag stamp and drop both cached views.
+    private void ownerChanged(Integer userId) {
+        userRepository.bumpVersion(userId);
+        evictOwnerViews(userId);
+    }
+
+    // The card list goes first, so a node that sees the new stamp no longer serves the old list.
+    private void evictOwnerViews(Integer userId) {
+        evict(CARDS_BY_USER_CACHE, userId);
+        evict(USERS_CACHE, userId);
+    }
 
-        return cardNumber;
+    private void evict(String cacheName, Integer key) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null)
+            cache.evict(key);
     }
 }
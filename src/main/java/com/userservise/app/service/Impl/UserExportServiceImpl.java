@@ -0,0 +1,83 @@
+package com.userservise.app.service.Impl;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.userservise.app.mapper.UserMapper;
+import com.userservise.app.model.dto.UserDto;
+import com.userservise.app.model.entity.Card;
+import com.userservise.app.model.entity.User;
+import com.userservise.app.repository.UserRepository;
+import com.userservise.app.service.UserExportService;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+@Service
+@RequiredArgsConstructor
+public class UserExportServiceImpl implements UserExportService {
+
+    // The generator writes whenever its buffer fills; flushing the response is only needed now and then.
+    private static final int FLUSH_INTERVAL = 1_000;
+
+    private final UserRepository userRepository;
+    private final UserMapper userMapper;
+    private final ObjectMapper objectMapper;
+    private final EntityManager entityManager;
+
+    @Override
+    @Transactional(readOnly = true)
+    public void exportUsers(OutputStream out) {
+        ObjectWriter userWriter = objectMapper.writerFor(UserDto.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+
+        try (Stream<Object[]> rows = userRepository.streamAllWithCards();
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+            User user = null;
+            int written = 0;
+            List<Card> cards = new ArrayList<>();
+            Iterator<Object[]> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                Object[] row = iterator.next();
+                User rowUser = (User) row[0];
+                Card card = (Card) row[1];
+
+                if (user != null && user != rowUser) {
+                    writeUser(generator, userWriter, user, cards);
+                    cards.clear();
+                    if (++written % FLUSH_INTERVAL == 0)
+                        generator.flush();
+                }
+                user = rowUser;
+                if (card != null)
+                    cards.add(card);
+            }
+            if (user != null)
+                writeUser(generator, userWriter, user, cards);
+            // Closing the generator flushes the rest.
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeUser(JsonGenerator generator, ObjectWriter userWriter, User user, List<Card> cards) throws IOException {
+        userWriter.writeValue(generator, userMapper.toDto(user, cards));
+        generator.writeRaw('\n');
+
+        // Written rows are dropped from the persistence context so memory stays flat for any table size.
+        cards.forEach(entityManager::detach);
+        entityManager.detach(user);
+    }
+}
@@ -0,0 +1,259 @@
+package com.userservise.app.service.Impl;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.userservise.app.mapper.UserMapper;
+import com.userservise.app.model.constants.ErrorMessage;
+import com.userservise.app.model.dto.UserRequest;
+import com.userservise.app.model.entity.User;
+import com.userservise.app.model.enums.ImportStatus;
+import com.userservise.app.model.exception.InvalidDataException;
+import com.userservise.app.model.response.UserImportResponse;
+import com.userservise.app.model.response.UserImportRowResult;
+import com.userservise.app.repository.UserRepository;
+import com.userservise.app.service.UserImportService;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Service
+public class UserImportServiceImpl implements UserImportService {
+
+    private final UserRepository userRepository;
+    private final UserMapper userMapper;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final ObjectReader requestReader;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+
+    public UserImportServiceImpl(UserRepository userRepository,
+                                 UserMapper userMapper,
+                                 Validator validator,
+                                 ObjectMapper objectMapper,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${user.import.batch-size:500}") int batchSize) {
+        this.userRepository = userRepository;
+        this.userMapper = userMapper;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.requestReader = objectMapper.readerFor(UserRequest.class);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public UserImportResponse importJsonArray(InputStream json) {
+        ImportRun run = new ImportRun();
+
+        try (JsonParser parser = objectMapper.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY)
+                throw new InvalidDataException(ErrorMessage.INVALID_IMPORT_PAYLOAD.getMessage("expected a JSON array"));
+
+            int index = 0;
+            try {
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    JsonNode node = parser.readValueAsTree();
+                    run.add(readRow(index++, node));
+                }
+            } catch (JsonProcessingException e) {
+                // Nothing after a syntax error can be trusted, so the rest of the payload is dropped.
+                run.add(new Row(index, null, ErrorMessage.INVALID_IMPORT_ROW.getMessage(e.getOriginalMessage())));
+            }
+        } catch (JsonProcessingException e) {
+            throw new InvalidDataException(ErrorMessage.INVALID_IMPORT_PAYLOAD.getMessage(e.getOriginalMessage()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return run.finish();
+    }
+
+    @Override
+    public UserImportResponse importNdjson(InputStream ndjson) {
+        ImportRun run = new ImportRun();
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(ndjson, StandardCharsets.UTF_8))) {
+            int index = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank())
+                    continue;
+
+                run.add(readRow(index++, line));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return run.finish();
+    }
+
+    private Row readRow(int index, JsonNode node) {
+        try {
+            return new Row(index, requestReader.readValue(node), null);
+        } catch (IOException e) {
+            return new Row(index, null, ErrorMessage.INVALID_IMPORT_ROW.getMessage(originalMessage(e)));
+        }
+    }
+
+    private Row readRow(int index, String line) {
+        try {
+            return new Row(index, requestReader.readValue(line), null);
+        } catch (IOException e) {
+            return new Row(index, null, ErrorMessage.INVALID_IMPORT_ROW.getMessage(originalMessage(e)));
+        }
+    }
+
+    private static String originalMessage(IOException e) {
+        return e instanceof JsonProcessingException jsonException ? jsonException.getOriginalMessage() : e.getMessage();
+    }
+
+    private List<UserImportRowResult> importBatch(List<Row> batch) {
+        List<UserImportRowResult> results = new ArrayList<>(batch.size());
+        List<Row> candidates = new ArrayList<>(batch.size());
+
+        for (Row row : batch) {
+            String error = row.error() != null ? row.error() : validate(row.request());
+            if (error != null)
+                results.add(failed(row, error));
+            else
+                candidates.add(row);
+        }
+
+        if (candidates.isEmpty())
+            return results;
+
+        List<UserImportRowResult> persisted;
+        try {
+            persisted = transactionTemplate.execute(status -> persist(candidates));
+        } catch (DataIntegrityViolationException e) {
+            // Another writer took an email or user id between the duplicate check and the insert;
+            // running the batch again re-reads what exists and rejects just those rows.
+            try {
+                persisted = transactionTemplate.execute(status -> persist(candidates));
+            } catch (DataIntegrityViolationException retryException) {
+                persisted = candidates.stream()
+                        .map(row -> failed(row, ErrorMessage.IMPORT_BATCH_FAILED.getMessage(retryException.getMostSpecificCause().getMessage())))
+                        .toList();
+            }
+        }
+        results.addAll(persisted);
+
+        return results;
+    }
+
+    private List<UserImportRowResult> persist(List<Row> candidates) {
+        Set<String> existingEmails = userRepository.findExistingEmails(
+                candidates.stream().map(row -> row.request().getEmail()).collect(Collectors.toSet()));
+        Set<Integer> existingUserIds = userRepository.findExistingUserIds(
+                candidates.stream().map(row -> row.request().getUserId()).collect(Collectors.toSet()));
+
+        List<UserImportRowResult> results = new ArrayList<>(candidates.size());
+        List<User> users = new ArrayList<>(candidates.size());
+        Set<String> batchEmails = new HashSet<>();
+        Set<Integer> batchUserIds = new HashSet<>();
+
+        for (Row row : candidates) {
+            UserRequest request = row.request();
+
+            if (existingEmails.contains(request.getEmail()) || batchEmails.contains(request.getEmail())) {
+                results.add(failed(row, ErrorMessage.EMAIL_ALREADY_EXISTS.getMessage(request.getEmail())));
+                continue;
+            }
+            if (existingUserIds.contains(request.getUserId()) || batchUserIds.contains(request.getUserId())) {
+                results.add(failed(row, ErrorMessage.USER_ID_ALREADY_EXISTS.getMessage(request.getUserId())));
+                continue;
+            }
+
+            batchEmails.add(request.getEmail());
+            batchUserIds.add(request.getUserId());
+            users.add(userMapper.createUser(request));
+            results.add(new UserImportRowResult(row.index(), request.getUserId(), request.getEmail(), ImportStatus.CREATED, null));
+        }
+
+        userRepository.saveAll(users);
+        userRepository.flush();
+
+        return results;
+    }
+
+    private String validate(UserRequest request) {
+        if (request == null)
+            return ErrorMessage.INVALID_IMPORT_ROW.getMessage("row is empty");
+
+        Set<ConstraintViolation<UserRequest>> violations = validator.validate(request);
+        if (!violations.isEmpty())
+            return violations.stream()
+                    .map(ConstraintViolation::getMessage)
+                    .sorted()
+                    .collect(Collectors.joining("; "));
+
+        if (request.getUserId() == null)
+            return ErrorMessage.USER_ID_IS_REQUIRED.getMessage();
+
+        return null;
+    }
+
+    private static UserImportRowResult failed(Row row, String error) {
+        Integer userId = row.request() != null ? row.request().getUserId() : null;
+        String email = row.request() != null ? row.request().getEmail() : null;
+
+        return new UserImportRowResult(row.index(), userId, email, ImportStatus.FAILED, error);
+    }
+
+    private record Row(int index, UserRequest request, String error) {
+    }
+
+    private class ImportRun {
+
+        private final List<Row> batch = new ArrayList<>(batchSize);
+        private final List<UserImportRowResult> results = new ArrayList<>();
+
+        void add(Row row) {
+            batch.add(row);
+            if (batch.size() >= batchSize)
+                flush();
+        }
+
+        UserImportResponse finish() {
+            flush();
+            results.sort(Comparator.comparingInt(UserImportRowResult::getIndex));
+
+            int created = (int) results.stream()
+                    .filter(result -> result.getStatus() == ImportStatus.CREATED)
+                    .count();
+
+            return new UserImportResponse(results.size(), created, results.size() - created, results);
+        }
+
+        private void flush() {
+            if (batch.isEmpty())
+                return;
+
+            results.addAll(importBatch(batch));
+            batch.clear();
+        }
+    }
+}
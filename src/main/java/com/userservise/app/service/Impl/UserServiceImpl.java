@@ -1,5 +1,7 @@
 package com.userservise.app.service.Impl;
 
+import com.userservise.app.cache.CardOwnerIndex;
+import com.userservise.app.cache.TwoLevelCache;
 import com.userservise.app.mapper.UserMapper;
 import com.userservise.app.model.constants.ErrorMessage;
 import com.userservise.app.model.dto.UserRequest;
@@ -9,30 +11,57 @@ import com.userservise.app.model.enums.ActiveStatus;
 import com.userservise.app.model.exception.DataExistException;
 import com.userservise.app.model.exception.InvalidDataException;
 import com.userservise.app.model.exception.NotFoundException;
+import com.userservise.app.model.response.BatchResponse;
 import com.userservise.app.repository.UserRepository;
 import com.userservise.app.service.UserService;
+import com.userservise.app.utils.MicroBatcher;
 import com.userservise.app.utils.specifications.UserSpecifications;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.CachePut;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
 
 @Service
 @RequiredArgsConstructor
 public class UserServiceImpl implements UserService {
 
+    private static final int MAX_SCROLL_LIMIT = 100;
+    private static final int MAX_BATCH_SIZE = 100;
+    private static final int MAX_CARDS_PER_USER = 5;
+    private static final String USERS_CACHE = "users";
+    private static final String CARDS_CACHE = "cards";
+    private static final String CARDS_BY_USER_CACHE = "cardsByUser";
+
     private final UserRepository userRepository;
     private final UserMapper userMapper;
+    private final CacheManager cacheManager;
+    private final CardOwnerIndex cardOwnerIndex;
+    private final MicroBatcher<Integer, UserDto> userBatchLoader;
 
+    // The result is a UserRequest, not the versioned UserDto readers expect, so it is not cached.
     @Override
     @Transactional
-    @CachePut(value = "users", key = "#result.userId")
+    @CacheEvict(value = "users", key = "#result.userId")
     public UserRequest createUser(UserRequest request) {
         if (userRepository.existsByEmail(request.getEmail()))
             throw new DataExistException(ErrorMessage.EMAIL_ALREADY_EXISTS.getMessage(request.getEmail()));
@@ -44,12 +73,13 @@ public class UserServiceImpl implements UserService {
     }
 
     @Override
-    @Transactional(readOnly = true)
-    @Cacheable(value = "users", key = "#userId")
+    @Cacheable(value = "users", key = "#userId", sync = true)
     public UserDto getUserById(Integer userId) {
-        return userRepository.findUserByUserId(userId)
-                .map(userMapper::toDto)
-                .orElseThrow(() -> new NotFoundException(ErrorMessage.USER_NOT_FOUND_BY_ID.getMessage(userId)));
+        UserDto user = userBatchLoader.load(userId);
+        if (user == null)
+            throw new NotFoundException(ErrorMessage.USER_NOT_FOUND_BY_ID.getMessage(userId));
+
+        return user;
     }
 
     @Override
@@ -59,6 +89,22 @@ public class UserServiceImpl implements UserService {
                 .orElseThrow(() -> new NotFoundException(ErrorMessage.USER_NOT_FOUND_BY_EMAIL.getMessage(userId)));
     }
 
+    @Override
+    public BatchResponse<UserDto> getUsersByIds(List<Integer> userIds) {
+        validateBatch(userIds);
+
+        Function<Set<Integer>, Map<Integer, UserDto>> loader = missingIds -> userRepository.findUsersWithCardsByUserIdIn(missingIds)
+                .stream()
+                .collect(Collectors.toMap(User::getUserId, userMapper::toDto));
+
+        Cache cache = cacheManager.getCache(USERS_CACHE);
+        Map<Integer, UserDto> users = cache instanceof TwoLevelCache twoLevelCache
+                ? twoLevelCache.getAll(userIds, loader)
+                : loader.apply(new LinkedHashSet<>(userIds));
+
+        return BatchResponse.of(userIds, users);
+    }
+
     @Override
     @Transactional(readOnly = true)
     public Page<UserDto> getAllUsers(String firstName, String surname, Pageable pageable) {
@@ -69,6 +115,22 @@ public class UserServiceImpl implements UserService {
                 .map(userMapper::toDto);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public Slice<UserDto> scrollUsers(String firstName, String surname, Integer afterUserId, int limit) {
+        if (limit < 1 || limit > MAX_SCROLL_LIMIT)
+            throw new InvalidDataException(ErrorMessage.INVALID_PAGE_LIMIT.getMessage(MAX_SCROLL_LIMIT));
+
+        Specification<User> specification = UserSpecifications.hasFirstName(firstName)
+                .and(UserSpecifications.hasSurname(surname))
+                .and(UserSpecifications.hasUserIdAfter(afterUserId));
+
+        Slice<User> users = userRepository.findBy(specification, query -> query
+                .slice(PageRequest.of(0, limit, Sort.by("userId"))));
+
+        return users.map(userMapper::toDto);
+    }
+
     @Override
     @Transactional
     @CachePut(value = "users", key = "#userId")
@@ -79,51 +141,94 @@ public class UserServiceImpl implements UserService {
         if (!request.getEmail().equals(user.getEmail()) && userRepository.existsByEmail(request.getEmail()))
             throw new DataExistException(ErrorMessage.EMAIL_ALREADY_EXISTS.getMessage(request.getEmail()));
 
-        if (!checkCardsCount(user))
+        if (!checkCardsCount(userId))
             throw new InvalidDataException(ErrorMessage.USER_CANNOT_HAVE_MORE_THAN_5_CARDS.getMessage(userId));
 
         userMapper.updateUser(request, user);
         User updatedUser = userRepository.save(user);
 
-        return userMapper.toDto(updatedUser);
+        return toVersionedDto(updatedUser);
     }
 
     @Override
     @Transactional
     @CachePut(value = "users", key = "#userId")
     public UserDto activateUser(Integer userId) {
-        User user = userRepository.findUserByUserId(userId)
-                .orElseThrow(() -> new NotFoundException(ErrorMessage.USER_NOT_FOUND_BY_ID.getMessage(userId)));
-
-        user.setActive(ActiveStatus.ACTIVE);
-        User updatedUser = userRepository.save(user);
-
-        return userMapper.toDto(updatedUser);
+        return changeStatus(userId, ActiveStatus.ACTIVE);
     }
 
     @Override
     @Transactional
-    @CacheEvict(value = "users", key = "#userId")
+    @CachePut(value = "users", key = "#userId")
     public UserDto deactivateUser(Integer userId) {
-        User user = userRepository.findUserByUserId(userId)
-                .orElseThrow(() -> new NotFoundException(ErrorMessage.USER_NOT_FOUND_BY_ID.getMessage(userId)));
-
-        user.setActive(ActiveStatus.INACTIVE);
-        User updatedUser = userRepository.save(user);
-
-        return userMapper.toDto(updatedUser);
+        return changeStatus(userId, ActiveStatus.INACTIVE);
     }
 
     @Override
     @Transactional
-    @CacheEvict(value = "users", key = "#userId")
     public void deleteById(Integer userId) {
-        if (!userRepository.existsByUserId(userId))
+        if (deleteUsers(Set.of(userId)) == 0)
             throw new NotFoundException(ErrorMessage.USER_NOT_FOUND_BY_ID.getMessage(userId));
-        userRepository.deleteUserByUserId(userId);
     }
 
-    private Boolean checkCardsCount(User user) {
-        return user.getCards().size() <= 5;
+    @Override
+    @Transactional
+    public BatchResponse<Integer> deleteByIds(List<Integer> userIds) {
+        validateBatch(userIds);
+
+        Set<Integer> existingIds = userRepository.findExistingUserIds(new LinkedHashSet<>(userIds));
+        deleteUsers(existingIds);
+
+        return BatchResponse.of(userIds, existingIds.stream()
+                .collect(Collectors.toMap(Function.identity(), Function.identity())));
+    }
+
+    private int deleteUsers(Set<Integer> userIds) {
+        if (userIds.isEmpty())
+            return 0;
+
+        List<Integer> cardIds = userRepository.findCardIdsByUserIdIn(userIds);
+        int deleted = userRepository.deleteUsersByUserIdIn(userIds);
+
+        cardOwnerIndex.removeAll(cardIds);
+        evictAll(USERS_CACHE, userIds);
+        evictAll(CARDS_BY_USER_CACHE, userIds);
+        evictAll(CARDS_CACHE, cardIds);
+
+        return deleted;
+    }
+
+    // A single UPDATE ... RETURNING joined with the cards; @CachePut stores the DTO built from it.
+    private UserDto changeStatus(Integer userId, ActiveStatus status) {
+        List<UserRepository.UserCardRow> rows = userRepository.updateActive(userId, status.name());
+        if (rows.isEmpty())
+            throw new NotFoundException(ErrorMessage.USER_NOT_FOUND_BY_ID.getMessage(userId));
+
+        return userMapper.toDto(rows);
+    }
+
+    // Every change moves the stamp, so the cached DTO always carries the ETag of its own content.
+    private UserDto toVersionedDto(User user) {
+        UserDto userDto = userMapper.toDto(user);
+        userDto.setVersion(userRepository.bumpVersion(user.getUserId())
+                .orElseThrow(() -> new NotFoundException(ErrorMessage.USER_NOT_FOUND_BY_ID.getMessage(user.getUserId()))));
+
+        return userDto;
+    }
+
+    // Inside the transaction these are buffered and reach Redis in one pipeline after commit.
+    private void evictAll(String cacheName, Collection<Integer> keys) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null)
+            keys.forEach(cache::evict);
+    }
+
+    private void validateBatch(List<Integer> userIds) {
+        if (userIds == null || userIds.isEmpty() || userIds.size() > MAX_BATCH_SIZE || userIds.stream().anyMatch(Objects::isNull))
+            throw new InvalidDataException(ErrorMessage.INVALID_BATCH_SIZE.getMessage(MAX_BATCH_SIZE));
+    }
+
+    private Boolean checkCardsCount(Integer userId) {
+        return userRepository.countCardsByUserId(userId) <= MAX_CARDS_PER_USER;
     }
 }
@@ -0,0 +1,8 @@
+package com.userservise.app.service;
+
+import java.io.OutputStream;
+
+public interface UserExportService {
+
+    void exportUsers(OutputStream out);
+}
@@ -0,0 +1,12 @@
+package com.userservise.app.service;
+
+import com.userservise.app.model.response.UserImportResponse;
+
+import java.io.InputStream;
+
+public interface UserImportService {
+
+    UserImportResponse importJsonArray(InputStream json);
+
+    UserImportResponse importNdjson(InputStream ndjson);
+}
@@ -2,8 +2,12 @@ package com.userservise.app.service;
 
 import com.userservise.app.model.dto.UserRequest;
 import com.userservise.app.model.dto.UserDto;
+import com.userservise.app.model.response.BatchResponse;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
 
 public interface UserService {
 
@@ -13,8 +17,12 @@ public interface UserService {
 
     UserRequest getUserByEmail(Integer userId);
 
+    BatchResponse<UserDto> getUsersByIds(List<Integer> userIds);
+
     Page<UserDto> getAllUsers(String firstName, String surname, Pageable pageable);
 
+    Slice<UserDto> scrollUsers(String firstName, String surname, Integer afterUserId, int limit);
+
     UserDto updateUser(Integer id, UserRequest updatedUser);
 
     UserDto activateUser(Integer id);
@@ -22,4 +30,6 @@ public interface UserService {
     UserDto deactivateUser(Integer id);
 
     void deleteById(Integer id);
+
+    BatchResponse<Integer> deleteByIds(List<Integer> userIds);
 }
@@ -0,0 +1,30 @@
+package com.userservise.app.utils;
+
+import com.userservise.app.model.constants.ErrorMessage;
+import com.userservise.app.model.exception.InvalidDataException;
+import lombok.experimental.UtilityClass;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+@UtilityClass
+public class CursorCodec {
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    public static String encode(Integer lastId) {
+        return ENCODER.encodeToString(String.valueOf(lastId).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    public static Integer decode(String cursor) {
+        if (cursor == null || cursor.isBlank())
+            return null;
+
+        try {
+            return Integer.valueOf(new String(DECODER.decode(cursor), StandardCharsets.US_ASCII));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidDataException(ErrorMessage.INVALID_CURSOR.getMessage(cursor));
+        }
+    }
+}
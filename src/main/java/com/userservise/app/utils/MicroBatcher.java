@@ -0,0 +1,148 @@
+package com.userservise.app.utils;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Collects single-key lookups that arrive within a short window and resolves them with one call
+ * to a batch loader. The first caller of a batch waits out the window (or until the batch is
+ * full) and runs the loader on its own thread; everyone else in the batch waits for its result.
+ */
+public class MicroBatcher<K, V> {
+
+    private final Function<Set<K>, Map<K, V>> batchLoader;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final DistributionSummary batchSizes;
+    private final Timer loadTimer;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private Batch<K, V> current;
+
+    public MicroBatcher(String name,
+                        Function<Set<K>, Map<K, V>> batchLoader,
+                        Duration window,
+                        int maxBatchSize,
+                        MeterRegistry meterRegistry) {
+        this.batchLoader = batchLoader;
+        this.windowNanos = window.toNanos();
+        this.maxBatchSize = maxBatchSize;
+        this.batchSizes = DistributionSummary.builder("batch.loads.size")
+                .tag("loader", name)
+                .serviceLevelObjectives(1, 2, 5, 10, 25, 50, 100)
+                .register(meterRegistry);
+        this.loadTimer = Timer.builder("batch.loads.duration")
+                .tag("loader", name)
+                .register(meterRegistry);
+    }
+
+    /**
+     * @return the value for {@code key}, or {@code null} if the loader did not return one
+     */
+    public V load(K key) {
+        if (windowNanos <= 0 || maxBatchSize <= 1)
+            return loadBatch(Set.of(key)).get(key);
+
+        Batch<K, V> batch;
+        CompletableFuture<V> result;
+        boolean leader = false;
+        boolean full;
+        lock.lock();
+        try {
+            if (current == null) {
+                current = new Batch<>(Thread.currentThread());
+                leader = true;
+            }
+            batch = current;
+            result = batch.results.computeIfAbsent(key, k -> new CompletableFuture<>());
+            full = batch.results.size() >= maxBatchSize;
+            if (full) {
+                current = null;
+                batch.detached = true;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        if (leader) {
+            long deadline = System.nanoTime() + windowNanos;
+            long remaining;
+            while (!batch.detached && !Thread.currentThread().isInterrupted()
+                    && (remaining = deadline - System.nanoTime()) > 0)
+                LockSupport.parkNanos(this, remaining);
+            close(batch);
+            dispatch(batch);
+        } else if (full) {
+            LockSupport.unpark(batch.leader);
+        }
+
+        return join(result);
+    }
+
+    private void close(Batch<K, V> batch) {
+        lock.lock();
+        try {
+            if (current == batch)
+                current = null;
+            batch.detached = true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // The batch is detached, so no one else touches its results any more.
+    private void dispatch(Batch<K, V> batch) {
+        Map<K, CompletableFuture<V>> results = batch.results;
+        try {
+            Map<K, V> loaded = loadBatch(results.keySet());
+            results.forEach((key, result) -> result.complete(loaded.get(key)));
+        } catch (Throwable e) {
+            results.values().forEach(result -> result.completeExceptionally(e));
+        }
+    }
+
+    private Map<K, V> loadBatch(Set<K> keys) {
+        batchSizes.record(keys.size());
+        long start = System.nanoTime();
+        try {
+            return batchLoader.apply(keys);
+        } finally {
+            loadTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private V join(CompletableFuture<V> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause)
+                throw cause;
+            throw e;
+        }
+    }
+
+    private static final class Batch<K, V> {
+
+        private final Thread leader;
+        private final Map<K, CompletableFuture<V>> results = new LinkedHashMap<>();
+
+        // Set once no more keys can join; the leader stops waiting.
+        private volatile boolean detached;
+
+        private Batch(Thread leader) {
+            this.leader = leader;
+        }
+    }
+}
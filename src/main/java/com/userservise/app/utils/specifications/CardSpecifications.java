@@ -7,6 +7,11 @@ public class CardSpecifications {
 
     public static Specification<Card> hasHolder(String holder) {
         return (root, query, cb) ->
-                holder == null ? null : cb.like(cb.lower(root.get("holder")), "%" + holder.toLowerCase() + "%");
+                holder == null ? null : cb.like(cb.lower(root.get("holder")), LikePatterns.containsIgnoreCase(holder), LikePatterns.ESCAPE);
+    }
+
+    public static Specification<Card> hasIdAfter(Integer id) {
+        return (root, query, cb) ->
+                id == null ? null : cb.greaterThan(root.get("id"), id);
     }
 }
@@ -0,0 +1,21 @@
+package com.userservise.app.utils.specifications;
+
+import lombok.experimental.UtilityClass;
+
+@UtilityClass
+public class LikePatterns {
+
+    public static final char ESCAPE = '\\';
+
+    // Matches the lower(column) expressions the trigram indexes are built on.
+    public static String containsIgnoreCase(String value) {
+        StringBuilder pattern = new StringBuilder(value.length() + 2).append('%');
+        for (char c : value.toLowerCase().toCharArray()) {
+            if (c == '%' || c == '_' || c == ESCAPE)
+                pattern.append(ESCAPE);
+            pattern.append(c);
+        }
+
+        return pattern.append('%').toString();
+    }
+}
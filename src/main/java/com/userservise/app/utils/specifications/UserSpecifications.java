@@ -7,11 +7,16 @@ public class UserSpecifications {
 
     public static Specification<User> hasFirstName(String firstName) {
         return (root, query, cb) ->
-                firstName == null ? null : cb.like(cb.lower(root.get("name")), "%" + firstName.toLowerCase() + "%");
+                firstName == null ? null : cb.like(cb.lower(root.get("name")), LikePatterns.containsIgnoreCase(firstName), LikePatterns.ESCAPE);
     }
 
     public static Specification<User> hasSurname(String surname) {
         return (root, query, cb) ->
-                surname == null ? null : cb.like(cb.lower(root.get("name")), "%" + surname.toLowerCase() + "%");
+                surname == null ? null : cb.like(cb.lower(root.get("surname")), LikePatterns.containsIgnoreCase(surname), LikePatterns.ESCAPE);
+    }
+
+    public static Specification<User> hasUserIdAfter(Integer userId) {
+        return (root, query, cb) ->
+                userId == null ? null : cb.greaterThan(root.get("userId"), userId);
     }
 }
@@ -0,0 +1,14 @@
+--liquibase formatted sql
+
+--changeset user_service:5
+CREATE EXTENSION IF NOT EXISTS pg_trgm WITH SCHEMA public;
+
+--changeset user_service:6 runInTransaction:false
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_name_trgm
+    ON user_service.users USING gin (lower(name) public.gin_trgm_ops);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_surname_trgm
+    ON user_service.users USING gin (lower(surname) public.gin_trgm_ops);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_payment_cards_holder_trgm
+    ON user_service.payment_cards USING gin (lower(holder) public.gin_trgm_ops);
@@ -0,0 +1,5 @@
+--liquibase formatted sql
+
+--changeset user_service:7
+-- Hibernate hands out user ids from this sequence in blocks of 50 so inserts can be batched.
+ALTER TABLE user_service.users ALTER COLUMN id SET INCREMENT BY 50;
@@ -0,0 +1,5 @@
+--liquibase formatted sql
+
+--changeset user_service:8 runInTransaction:false
+-- Lets the cache warm-up page through the most recently updated users by (updated_at, id).
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_updated_at_id ON user_service.users (updated_at DESC, id DESC);
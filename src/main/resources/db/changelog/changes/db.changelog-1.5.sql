@@ -0,0 +1,7 @@
+--liquibase formatted sql
+
+--changeset user_service:9
+-- Version stamp behind the user and card ETags, moved by every change to a user or one of its cards.
+-- Values come from one sequence, so a stamp is never reused, not even for a re-created user_id.
+CREATE SEQUENCE IF NOT EXISTS user_service.users_version_seq;
+ALTER TABLE user_service.users ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT nextval('user_service.users_version_seq');
@@ -0,0 +1,119 @@
+package com.user.servise.User.Servise.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.userservise.app.cache.CacheValueSerializer;
+import com.userservise.app.model.dto.CardDto;
+import com.userservise.app.model.dto.UserDto;
+import com.userservise.app.model.enums.ActiveStatus;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_METHOD)
+public class CacheValueSerializerTest {
+
+    @Test
+    public void smileRoundTripIsSmallerThanJson() {
+        // Arrange:
+        CacheValueSerializer<UserDto> smile = new CacheValueSerializer<>(UserDto.class, CacheValueSerializer.Format.SMILE, 0);
+        CacheValueSerializer<UserDto> json = new CacheValueSerializer<>(UserDto.class, CacheValueSerializer.Format.JSON, 0);
+        UserDto user = user(5);
+
+        // Act:
+        byte[] smileBytes = smile.serialize(user);
+        byte[] jsonBytes = json.serialize(user);
+
+        // Assert:
+        assertEquals(user, smile.deserialize(smileBytes));
+        assertEquals(user, json.deserialize(jsonBytes));
+        assertTrue(smileBytes.length < jsonBytes.length);
+    }
+
+    @Test
+    public void serializeCompressesAboveThreshold() {
+        // Arrange:
+        CacheValueSerializer<UserDto> compressing = new CacheValueSerializer<>(UserDto.class, CacheValueSerializer.Format.SMILE, 64);
+        CacheValueSerializer<UserDto> plain = new CacheValueSerializer<>(UserDto.class, CacheValueSerializer.Format.SMILE, 0);
+        UserDto user = user(5);
+
+        // Act:
+        byte[] compressed = compressing.serialize(user);
+
+        // Assert:
+        assertTrue(compressed.length < plain.serialize(user).length);
+        assertEquals(user, compressing.deserialize(compressed));
+        assertEquals(user, plain.deserialize(compressed));
+    }
+
+    @Test
+    public void deserializeReadsEntriesWrittenAsPlainJson() throws Exception {
+        // Arrange:
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        UserDto user = user(1);
+        byte[] legacy = objectMapper.writeValueAsBytes(user);
+
+        // Act:
+        UserDto result = new CacheValueSerializer<>(UserDto.class, CacheValueSerializer.Format.SMILE, 0).deserialize(legacy);
+
+        // Assert:
+        assertEquals(user, result);
+    }
+
+    @Test
+    public void legacyFormatWritesHeaderlessJsonForOldNodes() throws Exception {
+        // Arrange:
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.registerModule(new JavaTimeModule());
+        CacheValueSerializer<UserDto> legacy = new CacheValueSerializer<>(UserDto.class, CacheValueSerializer.Format.LEGACY, 64);
+        UserDto user = user(5);
+
+        // Act:
+        byte[] bytes = legacy.serialize(user);
+
+        // Assert: no header and no compression, whatever the threshold
+        assertEquals('{', bytes[0]);
+        assertEquals(user, objectMapper.readValue(bytes, UserDto.class));
+        assertEquals(user, new CacheValueSerializer<>(UserDto.class, CacheValueSerializer.Format.SMILE, 0).deserialize(bytes));
+    }
+
+    @Test
+    public void deserializeUnknownVersionReturnsNull() {
+        // Arrange:
+        CacheValueSerializer<UserDto> serializer = new CacheValueSerializer<>(UserDto.class, CacheValueSerializer.Format.SMILE, 0);
+        byte[] bytes = serializer.serialize(user(0));
+        bytes[0] = 99;
+
+        // Act:
+        UserDto result = serializer.deserialize(bytes);
+
+        // Assert:
+        assertNull(result);
+    }
+
+    private static UserDto user(int cardCount) {
+        List<CardDto> cards = new ArrayList<>();
+        for (int i = 0; i < cardCount; i++) {
+            CardDto card = new CardDto();
+            card.setId(i + 1);
+            card.setNumber(String.format("4000%012d", i));
+            card.setHolder("Nikita Yatsko");
+            card.setExpirationDate(LocalDate.of(2029, 9, 30));
+            card.setActive(ActiveStatus.ACTIVE);
+            card.setCreatedAt(LocalDate.of(2024, 1, 1));
+            card.setUpdatedAt(LocalDate.of(2024, 6, 1));
+            cards.add(card);
+        }
+
+        return new UserDto(1001, "Nikita", "Yatsko", LocalDate.of(1985, 9, 22), "nikitayatsko@example.com",
+                cards, ActiveStatus.ACTIVE, LocalDate.of(2024, 1, 1), LocalDate.of(2024, 6, 1), 42L);
+    }
+}
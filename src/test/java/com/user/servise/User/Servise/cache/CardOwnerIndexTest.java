@@ -0,0 +1,133 @@
+package com.user.servise.User.Servise.cache;
+
+import com.userservise.app.cache.CardOwnerIndex;
+import com.userservise.app.cache.RedisCircuitBreaker;
+import com.userservise.app.repository.CardRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@TestInstance(TestInstance.Lifecycle.PER_METHOD)
+public class CardOwnerIndexTest {
+
+    @Mock
+    private CardRepository cardRepository;
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private HashOperations<String, Object, Object> hashOperations;
+
+    private CardOwnerIndex cardOwnerIndex;
+
+    @BeforeEach
+    public void setUp() {
+        when(redisTemplate.opsForHash()).thenReturn(hashOperations);
+        cardOwnerIndex = new CardOwnerIndex(cardRepository, redisTemplate,
+                new RedisCircuitBreaker(1, Duration.ofMinutes(1), new SimpleMeterRegistry()), 100);
+    }
+
+    @Test
+    public void findOwnerIdLoadsFromDatabaseOnceThenServesLocally() {
+        // Arrange:
+        when(cardRepository.findOwnerUserIdById(150)).thenReturn(Optional.of(7));
+
+        // Act:
+        Optional<Integer> first = cardOwnerIndex.findOwnerId(150);
+        Optional<Integer> second = cardOwnerIndex.findOwnerId(150);
+
+        // Assert:
+        assertEquals(Optional.of(7), first);
+        assertEquals(Optional.of(7), second);
+
+        // Verify:
+        verify(hashOperations, times(1)).get("card-owners:1", "150");
+        verify(hashOperations, times(1)).put("card-owners:1", "150", "7");
+        verify(cardRepository, times(1)).findOwnerUserIdById(150);
+    }
+
+    @Test
+    public void findOwnerIdUsesRedisBeforeDatabase() {
+        // Arrange:
+        when(hashOperations.get("card-owners:0", "5")).thenReturn("3");
+
+        // Act:
+        Optional<Integer> result = cardOwnerIndex.findOwnerId(5);
+
+        // Assert:
+        assertEquals(Optional.of(3), result);
+
+        // Verify:
+        verifyNoInteractions(cardRepository);
+    }
+
+    @Test
+    public void removeDropsEntryEverywhere() {
+        // Arrange:
+        cardOwnerIndex.register(5, 3);
+
+        // Act:
+        cardOwnerIndex.remove(5);
+        Optional<Integer> result = cardOwnerIndex.findOwnerId(5);
+
+        // Assert:
+        assertTrue(result.isEmpty());
+
+        // Verify:
+        verify(hashOperations, times(1)).delete("card-owners:0", "5");
+        verify(cardRepository, times(1)).findOwnerUserIdById(5);
+    }
+
+    @Test
+    public void removeAllDeletesOneHashCommandPerBucket() {
+        // Arrange:
+        cardOwnerIndex.register(5, 3);
+        cardOwnerIndex.register(150, 3);
+
+        // Act:
+        cardOwnerIndex.removeAll(List.of(5, 7, 150));
+
+        // Assert:
+        assertTrue(cardOwnerIndex.findOwnerId(150).isEmpty());
+
+        // Verify:
+        verify(hashOperations, times(1)).delete("card-owners:0", "5", "7");
+        verify(hashOperations, times(1)).delete("card-owners:1", "150");
+    }
+
+    @Test
+    public void redisOutageFallsBackToDatabaseAndSkipsSharedWrites() {
+        // Arrange:
+        RedisConnectionFailureException failure = new RedisConnectionFailureException("connection refused");
+        when(hashOperations.get("card-owners:0", "5")).thenThrow(failure);
+        when(cardRepository.findOwnerUserIdById(5)).thenReturn(Optional.of(3));
+
+        // Act:
+        Optional<Integer> result = cardOwnerIndex.findOwnerId(5);
+        cardOwnerIndex.register(6, 3);
+        cardOwnerIndex.removeAll(List.of(5, 6));
+
+        // Assert:
+        assertEquals(Optional.of(3), result);
+
+        // Verify: the first failure opens the circuit, nothing else goes to Redis
+        verify(hashOperations, times(1)).get(anyString(), any());
+        verifyNoMoreInteractions(hashOperations);
+    }
+}
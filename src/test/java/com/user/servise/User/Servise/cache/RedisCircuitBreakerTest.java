@@ -0,0 +1,99 @@
+package com.user.servise.User.Servise.cache;
+
+import com.userservise.app.cache.RedisCircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_METHOD)
+public class RedisCircuitBreakerTest {
+
+    private static final Instant START = Instant.parse("2024-06-01T00:00:00Z");
+
+    private SimpleMeterRegistry meterRegistry;
+    private AtomicInteger calls;
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        calls = new AtomicInteger();
+    }
+
+    @Test
+    public void opensAfterConsecutiveFailuresAndSkipsRedis() {
+        // Arrange:
+        RedisCircuitBreaker circuitBreaker = new RedisCircuitBreaker(2, Duration.ofSeconds(10),
+                Clock.fixed(START, ZoneOffset.UTC), meterRegistry);
+
+        // Act:
+        String first = circuitBreaker.execute("users", "get", this::failingCall, () -> "fallback");
+        String second = circuitBreaker.execute("users", "get", this::failingCall, () -> "fallback");
+        String third = circuitBreaker.execute("users", "get", this::failingCall, () -> "fallback");
+
+        // Assert:
+        assertEquals("fallback", first);
+        assertEquals("fallback", second);
+        assertEquals("fallback", third);
+        assertEquals(2, calls.get());
+        assertEquals(RedisCircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertEquals(1.0, meterRegistry.get("cache.redis.circuit.state").gauge().value());
+        assertEquals(2.0, meterRegistry.counter("cache.redis.fallbacks",
+                "cache", "users", "operation", "get", "reason", "error").count());
+        assertEquals(1.0, meterRegistry.counter("cache.redis.fallbacks",
+                "cache", "users", "operation", "get", "reason", "open").count());
+    }
+
+    @Test
+    public void closesAfterSuccessfulProbe() {
+        // Arrange:
+        RedisCircuitBreaker circuitBreaker = new RedisCircuitBreaker(1, Duration.ZERO,
+                Clock.fixed(START, ZoneOffset.UTC), meterRegistry);
+        circuitBreaker.execute("users", "get", this::failingCall, () -> "fallback");
+        RedisCircuitBreaker.State afterFailure = circuitBreaker.getState();
+
+        // Act:
+        String result = circuitBreaker.execute("users", "get", this::successfulCall, () -> "fallback");
+
+        // Assert:
+        assertEquals(RedisCircuitBreaker.State.OPEN, afterFailure);
+        assertEquals("value", result);
+        assertEquals(RedisCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertEquals(0.0, meterRegistry.get("cache.redis.circuit.state").gauge().value());
+    }
+
+    @Test
+    public void nonRedisFailuresPropagateWithoutOpening() {
+        // Arrange:
+        RedisCircuitBreaker circuitBreaker = new RedisCircuitBreaker(1, Duration.ofSeconds(10),
+                Clock.fixed(START, ZoneOffset.UTC), meterRegistry);
+
+        // Act:
+        assertThrows(SerializationException.class, () -> circuitBreaker.execute("users", "get", () -> {
+            throw new SerializationException("unreadable value");
+        }, () -> "fallback"));
+
+        // Assert:
+        assertEquals(RedisCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    private String failingCall() {
+        calls.incrementAndGet();
+        throw new RedisConnectionFailureException("connection refused");
+    }
+
+    private String successfulCall() {
+        calls.incrementAndGet();
+        return "value";
+    }
+}
@@ -0,0 +1,547 @@
+package com.user.servise.User.Servise.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.userservise.app.cache.CacheInvalidationMessage;
+import com.userservise.app.cache.CacheLoadCoordinator;
+import com.userservise.app.cache.CacheValueSerializer;
+import com.userservise.app.cache.PipelinedRedisCacheManager;
+import com.userservise.app.cache.RedisCircuitBreaker;
+import com.userservise.app.cache.TwoLevelCache;
+import com.userservise.app.cache.TwoLevelCacheManager;
+import com.userservise.app.model.dto.UserDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheWriter;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@TestInstance(TestInstance.Lifecycle.PER_METHOD)
+public class TwoLevelCacheTest {
+
+    private static final String CHANNEL = "cache-invalidation";
+    private static final CacheValueSerializer<UserDto> SERIALIZER =
+            new CacheValueSerializer<>(UserDto.class, CacheValueSerializer.Format.SMILE, 0);
+
+    @Mock
+    private CacheManager remoteCacheManager;
+
+    @Mock
+    private Cache remoteCache;
+
+    @Mock
+    private StringRedisTemplate redisTemplate;
+
+    @Mock
+    private CacheLoadCoordinator loadCoordinator;
+
+    private TwoLevelCacheManager cacheManager;
+    private RedisCircuitBreaker circuitBreaker;
+    private SimpleMeterRegistry meterRegistry;
+    private UserDto userDto;
+
+    private final AtomicReference<Instant> now = new AtomicReference<>(Instant.parse("2024-06-01T00:00:00Z"));
+    private final Clock clock = new Clock() {
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now.get();
+        }
+    };
+
+    @BeforeEach
+    public void setUp() {
+        lenient().when(remoteCacheManager.getCache("users")).thenReturn(remoteCache);
+        meterRegistry = new SimpleMeterRegistry();
+        circuitBreaker = new RedisCircuitBreaker(2, Duration.ofMinutes(1), clock, meterRegistry);
+        cacheManager = new TwoLevelCacheManager(remoteCacheManager, Caffeine.newBuilder().maximumSize(100),
+                redisTemplate, CHANNEL, loadCoordinator, circuitBreaker, meterRegistry);
+
+        userDto = new UserDto();
+        userDto.setUserId(1);
+        userDto.setName("name");
+    }
+
+    @Test
+    public void getServesRepeatedReadsFromLocalTier() {
+        // Arrange:
+        Cache cache = cacheManager.getCache("users");
+        when(remoteCache.get(1)).thenReturn(new SimpleValueWrapper(userDto));
+
+        // Act:
+        cache.get(1);
+        Cache.ValueWrapper result = cache.get(1);
+
+        // Assert:
+        assertNotNull(result);
+        assertEquals(userDto, result.get());
+
+        // Verify:
+        verify(remoteCache, times(1)).get(1);
+    }
+
+    @Test
+    public void putWritesBothTiersAndPublishesInvalidation() {
+        // Arrange:
+        Cache cache = cacheManager.getCache("users");
+
+        // Act:
+        cache.put(1, userDto);
+        Cache.ValueWrapper result = cache.get(1);
+
+        // Assert:
+        assertNotNull(result);
+        assertEquals(userDto, result.get());
+
+        // Verify:
+        verify(remoteCache, times(1)).put(1, userDto);
+        verify(remoteCache, never()).get(any());
+        verify(redisTemplate, times(1)).convertAndSend(eq(CHANNEL), contains("|users|1"));
+    }
+
+    @Test
+    public void invalidationFromOtherNodeEvictsLocalTier() {
+        // Arrange:
+        Cache cache = cacheManager.getCache("users");
+        cache.put(1, userDto);
+        String message = new CacheInvalidationMessage("other-node", "users", "1").encode();
+
+        // Act:
+        cacheManager.onMessage(new DefaultMessage(CHANNEL.getBytes(StandardCharsets.UTF_8),
+                message.getBytes(StandardCharsets.UTF_8)), null);
+        cache.get(1);
+
+        // Verify:
+        verify(remoteCache, times(1)).get(1);
+    }
+
+    @Test
+    public void evictRemovesBothTiers() {
+        // Arrange:
+        Cache cache = cacheManager.getCache("users");
+        cache.put(1, userDto);
+
+        // Act:
+        cache.evict(1);
+        Cache.ValueWrapper result = cache.get(1);
+
+        // Assert:
+        assertNull(result);
+
+        // Verify:
+        verify(remoteCache, times(1)).evict(1);
+        verify(remoteCache, times(1)).get(1);
+    }
+
+    @Test
+    public void writesInsideTransactionAreAppliedOnceAfterCommit() {
+        // Arrange:
+        Cache cache = cacheManager.getCache("users");
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+
+        try {
+            // Act:
+            cache.put(1, userDto);
+            cache.evict(2);
+            cache.evict(2);
+
+            // Verify:
+            verifyNoInteractions(redisTemplate);
+            verify(remoteCache, never()).put(any(), any());
+
+            TransactionSynchronizationUtils.triggerAfterCommit();
+            TransactionSynchronizationUtils.triggerAfterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        Cache.ValueWrapper result = cache.get(1);
+
+        // Assert:
+        assertNotNull(result);
+        assertEquals(userDto, result.get());
+
+        // Verify:
+        verify(remoteCache, times(1)).put(1, userDto);
+        verify(remoteCache, times(1)).evict(2);
+        verify(remoteCache, never()).get(any());
+        verify(redisTemplate, times(2)).convertAndSend(eq(CHANNEL), anyString());
+        assertFalse(TransactionSynchronizationManager.hasResource(cacheManager));
+    }
+
+    @Test
+    public void writesInsideRolledBackTransactionAreDiscarded() {
+        // Arrange:
+        Cache cache = cacheManager.getCache("users");
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+
+        try {
+            // Act:
+            cache.put(1, userDto);
+            TransactionSynchronizationUtils.triggerAfterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        // Verify:
+        verifyNoInteractions(redisTemplate);
+        verify(remoteCache, never()).put(any(), any());
+        assertFalse(TransactionSynchronizationManager.hasResource(cacheManager));
+    }
+
+    @Test
+    public void loadDoesNotOverwriteWriteCommittedWhileItRan() {
+        // Arrange: the loader reads the old row, then an update commits its put before the load finishes
+        Cache cache = cacheManager.getCache("users");
+        UserDto oldUser = new UserDto();
+        oldUser.setUserId(1);
+        oldUser.setName("old");
+        Callable<UserDto> loader = () -> {
+            commit(() -> cache.put(1, userDto));
+            return oldUser;
+        };
+
+        // Act:
+        UserDto loaded = cache.get(1, loader);
+        Cache.ValueWrapper result = cache.get(1);
+
+        // Assert: the caller gets what it read, the tiers keep the committed value
+        assertEquals(oldUser, loaded);
+        assertNotNull(result);
+        assertEquals(userDto, result.get());
+
+        // Verify:
+        verify(remoteCache, times(1)).put(1, userDto);
+        verify(remoteCache, never()).put(1, oldUser);
+    }
+
+    @Test
+    public void loadDoesNotRefillKeyInvalidatedWhileItRan() {
+        // Arrange: another node commits a delete of user 1 while this node is loading it
+        Cache cache = cacheManager.getCache("users");
+        Callable<UserDto> loader = () -> {
+            invalidateFromOtherNode(cacheManager, "1");
+            return userDto;
+        };
+
+        // Act:
+        cache.get(1, loader);
+        cache.get(1);
+
+        // Verify: nothing was written back, so the next read goes to Redis again
+        verify(remoteCache, never()).put(any(), any());
+        verify(remoteCache, times(2)).get(1);
+    }
+
+    @Test
+    public void concurrentMissesShareOneLoad() throws Exception {
+        // Arrange:
+        Cache cache = cacheManager.getCache("users");
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        Callable<UserDto> loader = () -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            release.await();
+            return userDto;
+        };
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(2)) {
+            // Act:
+            Future<UserDto> leader = executor.submit(() -> cache.get(1, loader));
+            loading.await();
+            Future<UserDto> follower = executor.submit(() -> cache.get(1, loader));
+            while (meterRegistry.counter("cache.loads", "cache", "users", "result", "coalesced").count() == 0
+                    && !follower.isDone())
+                Thread.onSpinWait();
+            release.countDown();
+
+            // Assert:
+            assertEquals(userDto, leader.get(5, TimeUnit.SECONDS));
+            assertEquals(userDto, follower.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+        assertEquals(1.0, meterRegistry.counter("cache.loads", "cache", "users", "result", "coalesced").count());
+
+        // Verify:
+        verify(remoteCache, times(1)).put(1, userDto);
+        verifyNoInteractions(loadCoordinator);
+    }
+
+    @Test
+    public void concurrentMissesShareLoaderFailure() throws Exception {
+        // Arrange:
+        Cache cache = cacheManager.getCache("users");
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Callable<UserDto> loader = () -> {
+            loading.countDown();
+            release.await();
+            throw new IllegalStateException("database is down");
+        };
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(2)) {
+            // Act:
+            Future<UserDto> leader = executor.submit(() -> cache.get(1, loader));
+            loading.await();
+            Future<UserDto> follower = executor.submit(() -> cache.get(1, loader));
+            while (meterRegistry.counter("cache.loads", "cache", "users", "result", "coalesced").count() == 0
+                    && !follower.isDone())
+                Thread.onSpinWait();
+            release.countDown();
+
+            // Assert:
+            ExecutionException leaderFailure = assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS));
+            ExecutionException followerFailure = assertThrows(ExecutionException.class, () -> follower.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(Cache.ValueRetrievalException.class, leaderFailure.getCause());
+            assertSame(leaderFailure.getCause(), followerFailure.getCause());
+        }
+
+        // Verify:
+        verify(remoteCache, never()).put(any(), any());
+    }
+
+    @Test
+    public void getAllLoadsOnlyKeysMissingFromBothTiers() {
+        // Arrange:
+        TwoLevelCache cache = (TwoLevelCache) cacheManager.getCache("users");
+        UserDto remoteUser = new UserDto();
+        remoteUser.setUserId(2);
+        UserDto loadedUser = new UserDto();
+        loadedUser.setUserId(3);
+        cache.put(1, userDto);
+        when(remoteCache.get(2)).thenReturn(new SimpleValueWrapper(remoteUser));
+        List<Set<Integer>> loads = new ArrayList<>();
+
+        // Act:
+        Map<Integer, UserDto> result = cache.getAll(List.of(1, 2, 3, 4), missing -> {
+            loads.add(Set.copyOf(missing));
+            return Map.of(3, loadedUser);
+        });
+        Map<Integer, UserDto> cached = cache.getAll(List.of(2, 3), missing -> {
+            loads.add(Set.copyOf(missing));
+            return Map.of();
+        });
+
+        // Assert:
+        assertEquals(Map.of(1, userDto, 2, remoteUser, 3, loadedUser), result);
+        assertEquals(Map.of(2, remoteUser, 3, loadedUser), cached);
+        assertEquals(List.of(Set.of(3, 4)), loads);
+
+        // Verify:
+        verify(remoteCache, never()).get(1);
+        verify(remoteCache, times(1)).get(2);
+        verify(remoteCache, times(1)).putIfAbsent(3, loadedUser);
+    }
+
+    @Test
+    public void preloadSkipsKeysInvalidatedAfterTheyWereRead() {
+        // Arrange: the batch is read, then another node deletes user 2 before the preload writes it
+        UserDto deletedUser = new UserDto();
+        deletedUser.setUserId(2);
+        long readAt = cacheManager.invalidationClock();
+        invalidateFromOtherNode(cacheManager, "2");
+
+        // Act:
+        cacheManager.preload("users", Map.of(1, userDto, 2, deletedUser), readAt, Duration.ofMinutes(2));
+        cacheManager.preload("users", Map.of(2, deletedUser), cacheManager.invalidationClock(), Duration.ofMinutes(2));
+
+        // Verify: user 2 is only written by the batch read after the invalidation
+        verify(remoteCache, times(1)).putIfAbsent(1, userDto);
+        verify(remoteCache, times(1)).putIfAbsent(2, deletedUser);
+    }
+
+    @Test
+    public void redisFailureFallsBackToLoaderAndLocalTier() {
+        // Arrange:
+        Cache cache = cacheManager.getCache("users");
+        when(remoteCache.get(1)).thenThrow(new RedisConnectionFailureException("connection refused"));
+        doThrow(new RedisConnectionFailureException("connection refused")).when(remoteCache).put(any(), any());
+        AtomicInteger loads = new AtomicInteger();
+
+        // Act:
+        UserDto loaded = cache.get(1, () -> {
+            loads.incrementAndGet();
+            return userDto;
+        });
+        UserDto cached = cache.get(1, () -> {
+            loads.incrementAndGet();
+            return userDto;
+        });
+
+        // Assert:
+        assertEquals(userDto, loaded);
+        assertEquals(userDto, cached);
+        assertEquals(1, loads.get());
+        assertEquals(RedisCircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertEquals(1.0, meterRegistry.counter("cache.redis.fallbacks",
+                "cache", "users", "operation", "get", "reason", "error").count());
+
+        // Verify:
+        verify(remoteCache, times(1)).get(1);
+        verifyNoInteractions(loadCoordinator);
+    }
+
+    @Test
+    public void writesMissedDuringOutageAreRepairedWhenRedisIsBack() {
+        // Arrange:
+        Cache cache = cacheManager.getCache("users");
+        RedisConnectionFailureException failure = new RedisConnectionFailureException("connection refused");
+        doThrow(failure).doNothing().when(remoteCache).evict(1);
+        when(redisTemplate.convertAndSend(eq(CHANNEL), anyString())).thenThrow(failure).thenReturn(1L);
+
+        // Act:
+        cache.evict(1);
+        RedisCircuitBreaker.State duringOutage = circuitBreaker.getState();
+        cache.evict(1);
+        now.set(now.get().plus(Duration.ofMinutes(2)));
+        cache.get(1);
+
+        // Assert:
+        assertEquals(RedisCircuitBreaker.State.OPEN, duringOutage);
+        assertEquals(RedisCircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertEquals(1.0, meterRegistry.counter("cache.redis.fallbacks",
+                "cache", "users", "operation", "evict", "reason", "open").count());
+
+        // Verify:
+        verify(remoteCache, times(2)).evict(1);
+        verify(remoteCache, times(1)).get(1);
+        verify(redisTemplate, times(2)).convertAndSend(eq(CHANNEL), contains("|users|1"));
+    }
+
+    @Test
+    public void earlyRefreshCheckReadsValueAndTtlInOneRoundTrip() throws Exception {
+        // Arrange: a first miss times a load, then another node drops the key from L1
+        RedisCacheWriter cacheWriter = mock(RedisCacheWriter.class);
+        TwoLevelCacheManager pipelinedManager = pipelinedCacheManager(cacheWriter, true);
+        Cache cache = pipelinedManager.getCache("users");
+        cache.get(1, () -> userDto);
+        invalidateFromOtherNode(pipelinedManager, "1");
+        when(redisTemplate.execute(any(RedisCallback.class)))
+                .thenReturn(List.of(SERIALIZER.serialize(userDto), 60_000L));
+
+        // Act:
+        UserDto result = cache.get(1, () -> fail("should be served from Redis"));
+
+        // Assert:
+        assertEquals(userDto, result);
+
+        // Verify: GET + PTTL in one script call on the shared connection, no separate lookup, TTL call or pipeline
+        verify(redisTemplate, times(1)).execute(any(RedisCallback.class));
+        verify(redisTemplate, never()).executePipelined(any(RedisCallback.class), any(RedisSerializer.class));
+        verify(redisTemplate, never()).getExpire(anyString(), any(TimeUnit.class));
+        verify(cacheWriter, times(1)).get(anyString(), any(byte[].class));
+    }
+
+    @Test
+    public void waitForOtherNodesLoadIsBoundedByMeasuredLoadTime() {
+        // Arrange: loads take about 20 ms here; another node holds the lock for key 2 and never finishes
+        RedisCacheWriter cacheWriter = mock(RedisCacheWriter.class);
+        Cache cache = pipelinedCacheManager(cacheWriter, true, false).getCache("users");
+        cache.get(1, () -> {
+            Thread.sleep(20);
+            return userDto;
+        });
+        when(redisTemplate.execute(any(RedisCallback.class)))
+                .thenReturn(Arrays.asList(null, -2L));
+
+        // Act:
+        long start = System.nanoTime();
+        UserDto result = cache.get(2, () -> userDto);
+        long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // Assert: the lock wait is 10 s
+        assertEquals(userDto, result);
+        assertTrue(waitedMillis < 1_000, "Waited " + waitedMillis + " ms for the other node");
+    }
+
+    // Real load coordination over the mocked template; each load takes the lock if the next answer is true.
+    @SuppressWarnings("unchecked")
+    private TwoLevelCacheManager pipelinedCacheManager(RedisCacheWriter cacheWriter, Boolean lock, Boolean... nextLocks) {
+        ValueOperations<String, String> valueOperations = mock(ValueOperations.class);
+        when(redisTemplate.opsForValue()).thenReturn(valueOperations);
+        when(valueOperations.setIfAbsent(anyString(), anyString(), any(Duration.class))).thenReturn(lock, nextLocks);
+        CacheLoadCoordinator coordinator = new CacheLoadCoordinator(redisTemplate, Duration.ofSeconds(5),
+                Duration.ofSeconds(10), 1.0);
+        PipelinedRedisCacheManager redisCacheManager = new PipelinedRedisCacheManager(cacheWriter,
+                RedisCacheConfiguration.defaultCacheConfig()
+                        .serializeValuesWith(RedisSerializationContext.SerializationPair.fromSerializer(SERIALIZER)),
+                Map.of());
+
+        return new TwoLevelCacheManager(redisCacheManager, Caffeine.newBuilder().maximumSize(100),
+                redisTemplate, CHANNEL, coordinator, circuitBreaker, meterRegistry);
+    }
+
+    private static void commit(Runnable writes) {
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            writes.run();
+            TransactionSynchronizationUtils.triggerAfterCommit();
+            TransactionSynchronizationUtils.triggerAfterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static void invalidateFromOtherNode(TwoLevelCacheManager manager, String key) {
+        String message = new CacheInvalidationMessage("other-node", "users", key).encode();
+        manager.onMessage(new DefaultMessage(CHANNEL.getBytes(StandardCharsets.UTF_8),
+                message.getBytes(StandardCharsets.UTF_8)), null);
+    }
+}
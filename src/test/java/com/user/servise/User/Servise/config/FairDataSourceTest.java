@@ -0,0 +1,95 @@
+package com.user.servise.User.Servise.config;
+
+import com.userservise.app.config.FairDataSource;
+import com.userservise.app.config.VirtualThreadConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@TestInstance(TestInstance.Lifecycle.PER_METHOD)
+public class FairDataSourceTest {
+
+    @Mock
+    private DataSource targetDataSource;
+
+    @Mock
+    private Connection connection;
+
+    private FairDataSource fairDataSource;
+
+    @BeforeEach
+    public void setUp() {
+        fairDataSource = new FairDataSource(targetDataSource, 1, Duration.ofMillis(50));
+    }
+
+    @Test
+    public void getConnectionReleasesPermitOnceOnClose() throws SQLException {
+        // Arrange:
+        when(targetDataSource.getConnection()).thenReturn(connection);
+
+        // Act:
+        Connection first = fairDataSource.getConnection();
+        first.close();
+        first.close();
+        Connection second = fairDataSource.getConnection();
+
+        // Assert:
+        assertNotNull(second);
+        assertThrows(SQLTransientConnectionException.class, () -> fairDataSource.getConnection());
+
+        // Verify:
+        verify(connection, times(2)).close();
+        verify(targetDataSource, times(2)).getConnection();
+    }
+
+    @Test
+    public void getConnectionReleasesPermitWhenPoolFails() throws SQLException {
+        // Arrange:
+        when(targetDataSource.getConnection())
+                .thenThrow(new SQLTransientConnectionException("pool exhausted"))
+                .thenReturn(connection);
+
+        // Act:
+        assertThrows(SQLTransientConnectionException.class, () -> fairDataSource.getConnection());
+        Connection connection = fairDataSource.getConnection();
+
+        // Assert:
+        assertNotNull(connection);
+    }
+
+    @Test
+    public void virtualThreadsKeepHikariPoolAsItsOwnBean() {
+        // Arrange:
+        ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(DataSourceAutoConfiguration.class))
+                .withUserConfiguration(VirtualThreadConfig.class)
+                .withPropertyValues("spring.threads.virtual.enabled=true",
+                        "spring.datasource.url=jdbc:postgresql://localhost:5432/test",
+                        "spring.datasource.hikari.maximum-pool-size=7");
+
+        // Act & Assert: the pool starts lazily, so no database is needed
+        contextRunner.run(context -> {
+            HikariDataSource pool = context.getBean(HikariDataSource.class);
+            assertEquals(7, pool.getMaximumPoolSize());
+            assertInstanceOf(FairDataSource.class, context.getBean(DataSource.class));
+            assertSame(pool, context.getBean(DataSource.class).unwrap(HikariDataSource.class));
+        });
+    }
+}
@@ -7,14 +7,21 @@ import com.userservise.app.model.dto.CardDto;
 import com.userservise.app.model.entity.Card;
 import com.userservise.app.model.entity.User;
 import com.userservise.app.model.enums.ActiveStatus;
+import com.userservise.app.model.exception.InvalidDataException;
+import com.userservise.app.model.response.BatchResponse;
 import com.userservise.app.repository.CardRepository;
 import com.userservise.app.repository.UserRepository;
 import com.userservise.app.security.model.CustomUserDetails;
 import com.userservise.app.service.CardService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hamcrest.Matchers;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
 import org.springframework.http.MediaType;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
@@ -26,7 +33,14 @@ import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.authentication;
 
@@ -54,6 +68,12 @@ public class CardControllerTest extends BaseIntegrationTest{
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private CacheManager cacheManager;
+
     private User user;
     private Card card;
 
@@ -127,6 +147,37 @@ public class CardControllerTest extends BaseIntegrationTest{
                 .andExpect(MockMvcResultMatchers.jsonPath("$.content[0].holder").value(card.getHolder()));
     }
 
+    @Test
+    public void getCardByUserIdETagChangesWithOwnersCards() throws Exception {
+        // Given:
+        Authentication auth = new UsernamePasswordAuthenticationToken(
+                new CustomUserDetails(1L, "ADMIN"), null, List.of(new SimpleGrantedAuthority("ROLE_ADMIN")));
+        String eTag = mockMvc.perform(MockMvcRequestBuilders
+                        .get("/api/card/user/" + user.getUserId())
+                        .with(authentication(auth)))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        // When:
+        ResultActions notModified = mockMvc.perform(MockMvcRequestBuilders
+                .get("/api/card/user/" + user.getUserId())
+                .header("If-None-Match", eTag)
+                .with(authentication(auth)));
+        CardDto secondCard = cardService.createCard(user.getUserId());
+        ResultActions changed = mockMvc.perform(MockMvcRequestBuilders
+                .get("/api/card/user/" + user.getUserId())
+                .header("If-None-Match", eTag)
+                .with(authentication(auth)));
+
+        // Then:
+        Assertions.assertNotNull(eTag);
+        notModified.andExpect(MockMvcResultMatchers.status().isNotModified());
+        changed.andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(2))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[?(@.id == %d)]", secondCard.getId()).exists())
+                .andExpect(MockMvcResultMatchers.header().string("ETag", Matchers.not(eTag)));
+    }
+
     @Test
     public void getCardByUserIdReturn200Ok() throws Exception {
         // Given:
@@ -152,6 +203,145 @@ public class CardControllerTest extends BaseIntegrationTest{
                 .andExpect(MockMvcResultMatchers.jsonPath("$[0].holder").value(holder));
     }
 
+    @Test
+    public void concurrentReadsOfMissingUserAnswerCardListAndUserAlike() throws Exception {
+        // Given: card list and user requests for an unknown user share one cache load
+        int missingUserId = 999;
+        CustomUserDetails principal = new CustomUserDetails(1L, "ADMIN");
+        Authentication auth = new UsernamePasswordAuthenticationToken(
+                principal,
+                null,
+                List.of(new SimpleGrantedAuthority("ROLE_ADMIN"))
+        );
+        CountDownLatch start = new CountDownLatch(1);
+
+        // When:
+        List<Future<ResultActions>> cardLists = new ArrayList<>();
+        List<Future<ResultActions>> users = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            for (int i = 0; i < 4; i++) {
+                cardLists.add(executor.submit(() -> {
+                    start.await();
+                    return mockMvc.perform(MockMvcRequestBuilders
+                            .get("/api/card/user/" + missingUserId)
+                            .with(authentication(auth))
+                            .accept(MediaType.APPLICATION_JSON));
+                }));
+                users.add(executor.submit(() -> {
+                    start.await();
+                    return mockMvc.perform(MockMvcRequestBuilders
+                            .get("/api/user/" + missingUserId)
+                            .with(authentication(auth))
+                            .accept(MediaType.APPLICATION_JSON));
+                }));
+            }
+            start.countDown();
+        }
+
+        // Then: the card list is empty and untagged, the user is not found
+        for (Future<ResultActions> cardList : cardLists)
+            cardList.get(10, TimeUnit.SECONDS)
+                    .andExpect(MockMvcResultMatchers.status().isOk())
+                    .andExpect(MockMvcResultMatchers.jsonPath("$").isEmpty())
+                    .andExpect(MockMvcResultMatchers.header().doesNotExist("ETag"));
+        for (Future<ResultActions> user : users)
+            user.get(10, TimeUnit.SECONDS)
+                    .andExpect(MockMvcResultMatchers.status().isNotFound());
+    }
+
+    @Test
+    public void getCardByUserIdReflectsCardChangesAfterCaching() throws Exception {
+        // Given:
+        CustomUserDetails principal = new CustomUserDetails(1L, "ADMIN");
+        Authentication auth = new UsernamePasswordAuthenticationToken(
+                principal,
+                null,
+                List.of(new SimpleGrantedAuthority("ROLE_ADMIN"))
+        );
+        cardService.getAllByUserId(user.getUserId());
+        CardDto secondCard = cardService.createCard(user.getUserId());
+        cardService.getAllByUserId(user.getUserId());
+        cardService.activateCard(card.getId());
+
+        // When:
+        ResultActions response = mockMvc.perform(MockMvcRequestBuilders
+                .get("/api/card/user/" + user.getUserId())
+                .with(authentication(auth))
+                .accept(MediaType.APPLICATION_JSON));
+
+        // Then:
+        response.andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(2))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[?(@.id == %d)].active", card.getId())
+                        .value(Matchers.contains(ActiveStatus.ACTIVE.name())))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[?(@.id == %d)]", secondCard.getId()).exists());
+    }
+
+    @Test
+    public void getCardByIdLoadsCardWithOwnerInOneStatement() {
+        // Given:
+        cacheManager.getCache("cards").evict(card.getId());
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // When:
+        CardDto result = cardService.getCardById(card.getId());
+        long statements = statistics.getPrepareStatementCount();
+
+        // Then:
+        Assertions.assertEquals(1, statements);
+        Assertions.assertEquals(card.getNumber(), result.getNumber());
+    }
+
+    @Test
+    public void getCardsByIdsLoadsCardsOfSeveralOwnersInOneStatement() {
+        // Given: four cards with four different owners, none of them cached
+        List<Integer> ids = new ArrayList<>(List.of(card.getId()));
+        for (int userId = 2; userId <= 4; userId++) {
+            User owner = new User();
+            owner.setUserId(userId);
+            owner.setName("Owner");
+            owner.setSurname("User");
+            owner.setEmail("owner" + userId + "@mail.com");
+            owner.setActive(ActiveStatus.ACTIVE);
+            userRepository.saveAndFlush(owner);
+            ids.add(cardService.createCard(userId).getId());
+        }
+        cacheManager.getCache("cards").clear();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // When:
+        BatchResponse<CardDto> result = cardService.getCardsByIds(ids);
+        long statements = statistics.getPrepareStatementCount();
+
+        // Then:
+        Assertions.assertEquals(1, statements);
+        Assertions.assertEquals(4, result.getContent().size());
+        Assertions.assertTrue(result.getNotFound().isEmpty());
+    }
+
+    @Test
+    public void deactivateCardRunsOneStatementAndMovesOwnerStamp() {
+        // Given:
+        cardService.activateCard(card.getId());
+        Long version = userRepository.findUserByUserId(user.getUserId()).orElseThrow().getVersion();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // When:
+        CardDto result = cardService.deactivateCard(card.getId());
+        long statements = statistics.getPrepareStatementCount();
+
+        // Then:
+        Assertions.assertEquals(1, statements);
+        Assertions.assertEquals(card.getId(), result.getId());
+        Assertions.assertEquals(card.getNumber(), result.getNumber());
+        Assertions.assertEquals(ActiveStatus.INACTIVE, result.getActive());
+        Assertions.assertEquals(ActiveStatus.INACTIVE, cardRepository.findCardById(card.getId()).orElseThrow().getActive());
+        Assertions.assertNotEquals(version, userRepository.findUserByUserId(user.getUserId()).orElseThrow().getVersion());
+    }
+
     @Test
     public void createCardReturn200Ok() throws Exception {
         // Given:
@@ -174,6 +364,38 @@ public class CardControllerTest extends BaseIntegrationTest{
                 .andExpect(MockMvcResultMatchers.jsonPath("$.holder").value(holder));
     }
 
+    @Test
+    public void concurrentCreateCardsDoNotExceedLimit() throws Exception {
+        // Given: the user already has 4 of 5 allowed cards
+        for (int i = 0; i < 3; i++)
+            cardService.createCard(user.getUserId());
+        CountDownLatch start = new CountDownLatch(1);
+
+        // When:
+        List<Future<CardDto>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(4)) {
+            for (int i = 0; i < 4; i++)
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return cardService.createCard(user.getUserId());
+                }));
+            start.countDown();
+        }
+
+        // Then: only one request gets the last slot
+        int created = 0;
+        for (Future<CardDto> result : results) {
+            try {
+                result.get(10, TimeUnit.SECONDS);
+                created++;
+            } catch (ExecutionException e) {
+                Assertions.assertInstanceOf(InvalidDataException.class, e.getCause());
+            }
+        }
+        Assertions.assertEquals(1, created);
+        Assertions.assertEquals(5, cardRepository.findCardsByOwnerUserId(user.getUserId()).size());
+    }
+
     @Test
     public void updateCardReturn200Ok() throws Exception {
         //Given:
@@ -278,4 +500,95 @@ public class CardControllerTest extends BaseIntegrationTest{
         boolean exists = cardRepository.existsById(deleteCard.getId());
         Assertions.assertFalse(exists, "Card should be deleted from database");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void getCardsByIdsAllowsOnlyOwnCards() throws Exception {
+        // Given:
+        User otherUser = new User();
+        otherUser.setUserId(2);
+        otherUser.setName("Other");
+        otherUser.setSurname("User");
+        otherUser.setEmail("otherUserMail@mail.com");
+        otherUser.setActive(ActiveStatus.ACTIVE);
+        userRepository.saveAndFlush(otherUser);
+        CardDto otherCard = cardService.createCard(otherUser.getUserId());
+        CustomUserDetails principal = new CustomUserDetails(1L, "USER");
+        Authentication auth = new UsernamePasswordAuthenticationToken(
+                principal,
+                null,
+                List.of(new SimpleGrantedAuthority("ROLE_USER"))
+        );
+
+        // When:
+        ResultActions own = mockMvc.perform(MockMvcRequestBuilders
+                .post("/api/card/batch")
+                .with(authentication(auth))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"ids\": [" + card.getId() + "]}"));
+        ResultActions mixed = mockMvc.perform(MockMvcRequestBuilders
+                .post("/api/card/batch")
+                .with(authentication(auth))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"ids\": [" + card.getId() + ", " + otherCard.getId() + "]}"));
+
+        // Then:
+        own.andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.content[0].number").value(card.getNumber()))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.notFound").isEmpty());
+        mixed.andExpect(MockMvcResultMatchers.status().isForbidden());
+    }
+
+    @Test
+    public void bulkDeactivateCardsByHolderEvictsCardAndMovesOwnerStamp() throws Exception {
+        // Given:
+        Card secondCard = cardMapper.toCard(cardService.createCard(user.getUserId()));
+        cardService.activateCard(card.getId());
+        cardService.getCardById(card.getId());
+        Long version = userRepository.findUserByUserId(user.getUserId()).orElseThrow().getVersion();
+        CustomUserDetails principal = new CustomUserDetails(1L, "ADMIN");
+        Authentication auth = new UsernamePasswordAuthenticationToken(
+                principal,
+                null,
+                List.of(new SimpleGrantedAuthority("ROLE_ADMIN"))
+        );
+
+        // When:
+        ResultActions response = mockMvc.perform(MockMvcRequestBuilders
+                .put("/api/card/bulk/inactive")
+                .with(authentication(auth))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"holder\": \"test user\"}"));
+
+        // Then: the second card was already inactive
+        response.andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.active").value("INACTIVE"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.affected").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.chunks").value(1));
+        Assertions.assertNull(cacheManager.getCache("cards").get(card.getId()));
+        Assertions.assertEquals(ActiveStatus.INACTIVE, cardService.getCardById(card.getId()).getActive());
+        Assertions.assertEquals(ActiveStatus.INACTIVE, cardService.getCardById(secondCard.getId()).getActive());
+        Assertions.assertNotEquals(version, userRepository.findUserByUserId(user.getUserId()).orElseThrow().getVersion());
+    }
+
+    @Test
+    public void bulkActivateCardsRejectsUserRole() throws Exception {
+        // Given:
+        CustomUserDetails principal = new CustomUserDetails(1L, "USER");
+        Authentication auth = new UsernamePasswordAuthenticationToken(
+                principal,
+                null,
+                List.of(new SimpleGrantedAuthority("ROLE_USER"))
+        );
+
+        // When:
+        ResultActions response = mockMvc.perform(MockMvcRequestBuilders
+                .put("/api/card/bulk/active")
+                .with(authentication(auth))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"userIds\": [1]}"));
+
+        // Then:
+        response.andExpect(MockMvcResultMatchers.status().isForbidden());
+        Assertions.assertEquals(ActiveStatus.INACTIVE, cardRepository.findCardById(card.getId()).orElseThrow().getActive());
+    }
+}
@@ -0,0 +1,141 @@
+package com.user.servise.User.Servise.integration;
+
+import com.userservise.app.UserServiceApplication;
+import com.userservise.app.model.dto.CardDto;
+import com.userservise.app.model.entity.User;
+import com.userservise.app.model.enums.ActiveStatus;
+import com.userservise.app.repository.CardRepository;
+import com.userservise.app.repository.UserRepository;
+import com.userservise.app.service.CardService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+// Latency against table size is measured by CreateCardBenchmark in the jmh profile; this only
+// checks that allocating a number neither reads the existing ones nor fails on a taken one.
+@ActiveProfiles("test")
+@SpringBootTest(classes = UserServiceApplication.class)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class CardNumberAllocationTest extends BaseIntegrationTest {
+
+    private static final int SMALL_TABLE = 100;
+    private static final int LARGE_TABLE = 5_000;
+    private static final int SEED_BATCH_SIZE = 1_000;
+
+    @Autowired
+    private CardService cardService;
+
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private User owner;
+    private User seedOwner;
+    private long seeded;
+
+    @BeforeAll
+    public void setUp() {
+        owner = userRepository.saveAndFlush(newUser(1, "allocationOwner@mail.com"));
+        seedOwner = userRepository.saveAndFlush(newUser(2, "allocationSeed@mail.com"));
+    }
+
+    @AfterAll
+    public void tearDown() {
+        cardRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    public void createCardWorkDoesNotGrowWithTable() {
+        // Given:
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        // When:
+        seedCards(SMALL_TABLE);
+        statistics.clear();
+        CardDto first = cardService.createCard(owner.getUserId());
+        long smallStatements = statistics.getPrepareStatementCount();
+        long smallLoads = statistics.getEntityLoadCount();
+        cardRepository.deleteById(first.getId());
+
+        seedCards(LARGE_TABLE);
+        statistics.clear();
+        cardService.createCard(owner.getUserId());
+
+        // Then: the same statements run and no query returns more than one row, whatever the table holds
+        Assertions.assertEquals(smallStatements, statistics.getPrepareStatementCount());
+        Assertions.assertEquals(smallLoads, statistics.getEntityLoadCount());
+        for (String query : statistics.getQueries())
+            Assertions.assertTrue(statistics.getQueryStatistics(query).getExecutionRowCount() <= 1,
+                    "query read more than one row: " + query);
+    }
+
+    @Test
+    public void insertCardSkipsNumberAlreadyTaken() {
+        // Given: a concurrent allocation already took the number
+        String number = "4000000000000001";
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        CardRepository.CardRow first = transaction.execute(status -> cardRepository.insertCard(
+                seedOwner.getUserId(), number, "First Holder", LocalDate.now(), ActiveStatus.INACTIVE.name()).orElseThrow());
+
+        // When:
+        Optional<CardRepository.CardRow> second = transaction.execute(status -> cardRepository.insertCard(
+                owner.getUserId(), number, "Second Holder", LocalDate.now(), ActiveStatus.INACTIVE.name()));
+
+        // Then: no unique violation, just nothing inserted, so the caller can try another number
+        Assertions.assertTrue(second.isEmpty());
+        Assertions.assertEquals("First Holder", cardRepository.findCardById(first.getId()).orElseThrow().getHolder());
+        Assertions.assertTrue(cardRepository.findCardsByOwnerUserId(owner.getUserId()).stream()
+                .noneMatch(card -> number.equals(card.getNumber())));
+    }
+
+    private void seedCards(int targetSize) {
+        Date expirationDate = Date.valueOf(LocalDate.now().plusYears(4));
+        while (seeded < targetSize) {
+            List<Object[]> rows = new ArrayList<>(SEED_BATCH_SIZE);
+            for (int i = 0; i < SEED_BATCH_SIZE && seeded < targetSize; i++, seeded++) {
+                rows.add(new Object[]{seedOwner.getUserId(), String.format("9%015d", seeded),
+                        "Seed Holder", expirationDate, ActiveStatus.INACTIVE.name()});
+            }
+            jdbcTemplate.batchUpdate(
+                    "INSERT INTO user_service.payment_cards (user_id, number, holder, expiration_date, active) VALUES (?, ?, ?, ?, ?)",
+                    rows);
+        }
+    }
+
+    private User newUser(int userId, String email) {
+        User user = new User();
+        user.setUserId(userId);
+        user.setName("Allocation");
+        user.setSurname("User");
+        user.setEmail(email);
+        user.setBirthDate(LocalDate.of(2000, 1, 1));
+        user.setActive(ActiveStatus.ACTIVE);
+
+        return user;
+    }
+}
@@ -1,28 +1,51 @@
 package com.user.servise.User.Servise.integration;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.userservise.app.UserServiceApplication;
+import com.userservise.app.model.dto.CardDto;
+import com.userservise.app.model.dto.UserDto;
 import com.userservise.app.model.dto.UserRequest;
+import com.userservise.app.model.entity.Card;
 import com.userservise.app.model.entity.User;
 import com.userservise.app.model.enums.ActiveStatus;
+import com.userservise.app.model.enums.WarmUpState;
+import com.userservise.app.repository.CardRepository;
 import com.userservise.app.repository.UserRepository;
 import com.userservise.app.security.model.CustomUserDetails;
+import com.userservise.app.service.CacheWarmUpService;
+import com.userservise.app.service.UserService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hamcrest.Matchers;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.http.MediaType;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.authentication;
 
@@ -38,9 +61,27 @@ public class UserControllerTest extends BaseIntegrationTest{
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private CardRepository cardRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private CacheWarmUpService cacheWarmUpService;
+
     private User savedUser;
 
     @BeforeEach
@@ -132,6 +173,250 @@ public class UserControllerTest extends BaseIntegrationTest{
 
     }
 
+    @Test
+    public void getAllUsersFiltersBySurnameAndTreatsWildcardsLiterally() throws Exception {
+        // Given:
+        User user = new User();
+        user.setUserId(2);
+        user.setName("User");
+        user.setSurname("Under_score");
+        user.setEmail("underscoreUser@mail.com");
+        user.setBirthDate(LocalDate.of(2000, 1, 1));
+        user.setActive(ActiveStatus.ACTIVE);
+        userRepository.saveAndFlush(user);
+
+        CustomUserDetails principal = new CustomUserDetails(1L, "ADMIN");
+        Authentication auth = new UsernamePasswordAuthenticationToken(
+                principal,
+                null,
+                List.of(new SimpleGrantedAuthority("ROLE_ADMIN"))
+        );
+
+        // When:
+        ResultActions bySurname = mockMvc.perform(MockMvcRequestBuilders
+                .get("/api/user/all")
+                .with(authentication(auth))
+                .param("surname", "user")
+                .accept(MediaType.APPLICATION_JSON));
+        ResultActions byWildcard = mockMvc.perform(MockMvcRequestBuilders
+                .get("/api/user/all")
+                .with(authentication(auth))
+                .param("surname", "_")
+                .accept(MediaType.APPLICATION_JSON));
+
+        // Then:
+        bySurname.andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.content.length()").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.content[0].userId").value(savedUser.getUserId()));
+        byWildcard.andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.content.length()").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.content[0].userId").value(2));
+    }
+
+    @Test
+    public void importUsersBatchesInsertsAndReportsDuplicates() throws Exception {
+        // Given:
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < 120; i++) {
+            String email = i == 0 ? savedUser.getEmail() : "importedUser" + i + "@mail.com";
+            body.append("{\"userId\":").append(1000 + i)
+                    .append(",\"name\":\"Imported\",\"surname\":\"User\",\"birthDate\":\"1990-01-01\",\"email\":\"")
+                    .append(email).append("\"}\n");
+        }
+
+        CustomUserDetails principal = new CustomUserDetails(1L, "ADMIN");
+        Authentication auth = new UsernamePasswordAuthenticationToken(
+                principal,
+                null,
+                List.of(new SimpleGrantedAuthority("ROLE_ADMIN"))
+        );
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // When:
+        ResultActions response = mockMvc.perform(MockMvcRequestBuilders
+                .post("/api/user/import")
+                .with(authentication(auth))
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .content(body.toString())
+                .accept(MediaType.APPLICATION_JSON));
+
+        // Then:
+        response.andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.total").value(120))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.created").value(119))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.failed").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.rows[0].status").value("FAILED"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.rows[1].status").value("CREATED"));
+
+        Assertions.assertEquals(120, userRepository.count());
+        // two duplicate checks, a few sequence calls and one statement per JDBC batch instead of one per row
+        long statements = statistics.getPrepareStatementCount();
+        Assertions.assertTrue(statements <= 10, "Expected the import to be batched, got " + statements + " statements");
+    }
+
+    @Test
+    public void exportUsersStreamsOneLinePerUserInOneQuery() throws Exception {
+        // Given:
+        for (int i = 0; i < 3; i++) {
+            User user = new User();
+            user.setUserId(300 + i);
+            user.setName("Exported");
+            user.setSurname("User");
+            user.setEmail("exportedUser" + i + "@mail.com");
+            user.setBirthDate(LocalDate.of(2000, 1, 1));
+            user.setActive(ActiveStatus.ACTIVE);
+            user = userRepository.saveAndFlush(user);
+
+            for (int j = 0; j < i; j++) {
+                Card card = new Card();
+                card.setOwner(user);
+                card.setNumber(String.format("5000%06d%06d", i, j));
+                card.setHolder("Exported User");
+                card.setExpirationDate(LocalDate.now().plusYears(4));
+                card.setActive(ActiveStatus.ACTIVE);
+                cardRepository.saveAndFlush(card);
+            }
+        }
+
+        CustomUserDetails principal = new CustomUserDetails(1L, "ADMIN");
+        Authentication auth = new UsernamePasswordAuthenticationToken(
+                principal,
+                null,
+                List.of(new SimpleGrantedAuthority("ROLE_ADMIN"))
+        );
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // When:
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders
+                        .get("/api/user/export")
+                        .with(authentication(auth))
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentType(MediaType.APPLICATION_NDJSON));
+
+        // Then:
+        List<JsonNode> lines = result.getResponse().getContentAsString().lines()
+                .map(line -> {
+                    try {
+                        return objectMapper.readTree(line);
+                    } catch (Exception e) {
+                        throw new AssertionError(e);
+                    }
+                })
+                .toList();
+        Assertions.assertEquals(4, lines.size());
+        Assertions.assertEquals(savedUser.getUserId(), lines.get(0).get("userId").asInt());
+        for (int i = 0; i < 3; i++) {
+            Assertions.assertEquals(300 + i, lines.get(i + 1).get("userId").asInt());
+            Assertions.assertEquals(i, lines.get(i + 1).get("cards").size());
+        }
+        Assertions.assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void getAllUsersLoadsCardsForWholePageInOneQuery() throws Exception {
+        // Given:
+        for (int i = 0; i < 5; i++) {
+            User user = new User();
+            user.setUserId(100 + i);
+            user.setName("Paged");
+            user.setSurname("User");
+            user.setEmail("pagedUser" + i + "@mail.com");
+            user.setBirthDate(LocalDate.of(2000, 1, 1));
+            user.setActive(ActiveStatus.ACTIVE);
+            user = userRepository.saveAndFlush(user);
+
+            for (int j = 0; j < 2; j++) {
+                Card card = new Card();
+                card.setOwner(user);
+                card.setNumber(String.format("4000%06d%06d", i, j));
+                card.setHolder("Paged User");
+                card.setExpirationDate(LocalDate.now().plusYears(4));
+                card.setActive(ActiveStatus.ACTIVE);
+                cardRepository.saveAndFlush(card);
+            }
+        }
+
+        CustomUserDetails principal = new CustomUserDetails(1L, "ADMIN");
+        Authentication auth = new UsernamePasswordAuthenticationToken(
+                principal,
+                null,
+                List.of(new SimpleGrantedAuthority("ROLE_ADMIN"))
+        );
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // When:
+        ResultActions response = mockMvc.perform(MockMvcRequestBuilders
+                .get("/api/user/all")
+                .with(authentication(auth))
+                .param("limit", "10")
+                .accept(MediaType.APPLICATION_JSON));
+
+        // Then:
+        response.andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.content.length()").value(6))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.content[1].cards.length()").value(2));
+
+        // page query + optional count query + one batched cards query, whatever the page size
+        long statements = statistics.getPrepareStatementCount();
+        Assertions.assertTrue(statements <= 3, "Expected at most 3 statements for the page, got " + statements);
+    }
+
+    @Test
+    public void scrollUsersFollowsCursorWithoutOverlap() throws Exception {
+        // Given:
+        for (int i = 0; i < 2; i++) {
+            User user = new User();
+            user.setUserId(200 + i);
+            user.setName("Scrolled");
+            user.setSurname("User");
+            user.setEmail("scrolledUser" + i + "@mail.com");
+            user.setBirthDate(LocalDate.of(2000, 1, 1));
+            user.setActive(ActiveStatus.ACTIVE);
+            userRepository.saveAndFlush(user);
+        }
+
+        CustomUserDetails principal = new CustomUserDetails(1L, "ADMIN");
+        Authentication auth = new UsernamePasswordAuthenticationToken(
+                principal,
+                null,
+                List.of(new SimpleGrantedAuthority("ROLE_ADMIN"))
+        );
+
+        // When:
+        String firstPage = mockMvc.perform(MockMvcRequestBuilders
+                        .get("/api/user/scroll")
+                        .with(authentication(auth))
+                        .param("limit", "2")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.content[0].userId").value(savedUser.getUserId()))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.content[1].userId").value(200))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.hasNext").value(true))
+                .andReturn().getResponse().getContentAsString();
+        String cursor = objectMapper.readTree(firstPage).get("nextCursor").asText();
+
+        ResultActions response = mockMvc.perform(MockMvcRequestBuilders
+                .get("/api/user/scroll")
+                .with(authentication(auth))
+                .param("limit", "2")
+                .param("cursor", cursor)
+                .accept(MediaType.APPLICATION_JSON));
+
+        // Then:
+        response.andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.content.length()").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.content[0].userId").value(201))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.hasNext").value(false))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.nextCursor").doesNotExist());
+    }
+
     @Test
     public void createUserReturn201Ok() throws Exception {
         // Given:
@@ -155,6 +440,25 @@ public class UserControllerTest extends BaseIntegrationTest{
                 .andExpect(MockMvcResultMatchers.jsonPath("$.birthDate").value(request.getBirthDate().toString()));
     }
 
+    @Test
+    public void createdUserIsReadBackAsUserDtoOnSameNode() {
+        // Given:
+        UserRequest request = new UserRequest();
+        request.setUserId(2);
+        request.setName("Name");
+        request.setSurname("Surname");
+        request.setBirthDate(LocalDate.of(2000, 1, 1));
+        request.setEmail("NameSurname@mail.com");
+
+        // When:
+        userService.createUser(request);
+        UserDto user = userService.getUserById(2);
+
+        // Then:
+        Assertions.assertEquals(request.getEmail(), user.getEmail());
+        Assertions.assertInstanceOf(UserDto.class, cacheManager.getCache("users").get(2).get());
+    }
+
     @Test
     public void updateUserReturn200Ok() throws Exception {
         // Given:
@@ -263,4 +567,330 @@ public class UserControllerTest extends BaseIntegrationTest{
         boolean exists = userRepository.existsById(user.getUserId());
         Assertions.assertFalse(exists, "User should be deleted from database");
     }
+
+    @Test
+    public void deleteUsersByIdsRemovesUsersAndCardsInOneStatement() throws Exception {
+        // Given:
+        List<Integer> userIds = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            User user = new User();
+            user.setUserId(600 + i);
+            user.setName("Deleted");
+            user.setSurname("User");
+            user.setEmail("deletedUser" + i + "@mail.com");
+            user.setBirthDate(LocalDate.of(2000, 1, 1));
+            user.setActive(ActiveStatus.ACTIVE);
+            user = userRepository.saveAndFlush(user);
+            userIds.add(user.getUserId());
+
+            Card card = new Card();
+            card.setOwner(user);
+            card.setNumber(String.format("6000%012d", i));
+            card.setHolder("Deleted User");
+            card.setExpirationDate(LocalDate.now().plusYears(4));
+            card.setActive(ActiveStatus.ACTIVE);
+            cardRepository.saveAndFlush(card);
+        }
+
+        CustomUserDetails principal = new CustomUserDetails(1L, "ADMIN");
+        Authentication auth = new UsernamePasswordAuthenticationToken(
+                principal,
+                null,
+                List.of(new SimpleGrantedAuthority("ROLE_ADMIN"))
+        );
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // When:
+        ResultActions response = mockMvc.perform(MockMvcRequestBuilders
+                .post("/api/user/batch/delete")
+                .with(authentication(auth))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"ids\": [600, 999, 601]}"));
+
+        // Then:
+        response.andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.content[0]").value(600))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.content[1]").value(601))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.notFound[0]").value(999));
+
+        // existing ids, their card ids and a single DELETE; the cards go with the users in the database
+        Assertions.assertEquals(3, statistics.getPrepareStatementCount());
+        Assertions.assertEquals(0, statistics.getEntityLoadCount());
+        Assertions.assertFalse(userRepository.existsByUserId(userIds.get(0)));
+        Assertions.assertTrue(cardRepository.findCardsByOwnerUserIdIn(userIds).isEmpty());
+    }
+
+    @Test
+    public void getUserByIdAnswersNotModifiedFromCachedStamp() throws Exception {
+        // Given:
+        Authentication auth = new UsernamePasswordAuthenticationToken(
+                new CustomUserDetails(1L, "ADMIN"), null, List.of(new SimpleGrantedAuthority("ROLE_ADMIN")));
+        String eTag = mockMvc.perform(MockMvcRequestBuilders
+                        .get("/api/user/" + savedUser.getUserId())
+                        .with(authentication(auth)))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().exists("ETag"))
+                .andReturn().getResponse().getHeader("ETag");
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // When:
+        ResultActions notModified = mockMvc.perform(MockMvcRequestBuilders
+                .get("/api/user/" + savedUser.getUserId())
+                .header("If-None-Match", eTag)
+                .with(authentication(auth)));
+        long statements = statistics.getPrepareStatementCount();
+
+        UserRequest request = new UserRequest();
+        request.setName("Changed");
+        request.setSurname(savedUser.getSurname());
+        request.setBirthDate(savedUser.getBirthDate());
+        request.setEmail(savedUser.getEmail());
+        userService.updateUser(savedUser.getUserId(), request);
+
+        ResultActions changed = mockMvc.perform(MockMvcRequestBuilders
+                .get("/api/user/" + savedUser.getUserId())
+                .header("If-None-Match", eTag)
+                .with(authentication(auth)));
+
+        // Then:
+        notModified.andExpect(MockMvcResultMatchers.status().isNotModified())
+                .andExpect(MockMvcResultMatchers.header().string("ETag", eTag))
+                .andExpect(MockMvcResultMatchers.content().string(""));
+        Assertions.assertEquals(0, statements);
+        changed.andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.name").value("Changed"))
+                .andExpect(MockMvcResultMatchers.header().string("ETag", Matchers.not(eTag)));
+    }
+
+    @Test
+    public void deactivateUserRunsOneStatementAndReturnsCards() {
+        // Given:
+        List<Card> cards = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            Card card = new Card();
+            card.setOwner(savedUser);
+            card.setNumber("400000000000000" + i);
+            card.setHolder("Test User");
+            card.setExpirationDate(LocalDate.now().plusYears(4));
+            card.setActive(ActiveStatus.ACTIVE);
+            cards.add(card);
+        }
+        cardRepository.saveAllAndFlush(cards);
+        Long version = userRepository.findUserByUserId(savedUser.getUserId()).orElseThrow().getVersion();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // When:
+        UserDto result = userService.deactivateUser(savedUser.getUserId());
+        long statements = statistics.getPrepareStatementCount();
+
+        // Then:
+        Assertions.assertEquals(1, statements);
+        Assertions.assertEquals(ActiveStatus.INACTIVE, result.getActive());
+        Assertions.assertEquals(savedUser.getEmail(), result.getEmail());
+        Assertions.assertEquals(List.of(cards.get(0).getId(), cards.get(1).getId()),
+                result.getCards().stream().map(CardDto::getId).toList());
+        Assertions.assertNotEquals(version, result.getVersion());
+        Assertions.assertEquals(result, cacheManager.getCache("users").get(savedUser.getUserId()).get());
+    }
+
+    @Test
+    public void updateUserRolledBackLeavesCachedUserUntouched() {
+        // Given:
+        Cache users = cacheManager.getCache("users");
+        users.evict(savedUser.getUserId());
+        userService.getUserById(savedUser.getUserId());
+
+        UserRequest request = new UserRequest();
+        request.setName("Changed");
+        request.setSurname(savedUser.getSurname());
+        request.setBirthDate(savedUser.getBirthDate());
+        request.setEmail(savedUser.getEmail());
+
+        // When:
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            userService.updateUser(savedUser.getUserId(), request);
+            status.setRollbackOnly();
+        });
+
+        // Then:
+        Cache.ValueWrapper cached = users.get(savedUser.getUserId());
+        Assertions.assertNotNull(cached);
+        Assertions.assertEquals(savedUser.getName(), ((UserDto) cached.get()).getName());
+        Assertions.assertEquals(savedUser.getName(), userRepository.findUserByUserId(savedUser.getUserId()).orElseThrow().getName());
+    }
+
+    @Test
+    public void getUserByIdLoadsExpiredEntryOnceUnderConcurrentReads() throws Exception {
+        // Given:
+        cacheManager.getCache("users").evict(savedUser.getUserId());
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        CountDownLatch start = new CountDownLatch(1);
+
+        // When:
+        List<Future<UserDto>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 20; i++)
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return userService.getUserById(savedUser.getUserId());
+                }));
+            start.countDown();
+            for (Future<UserDto> result : results)
+                Assertions.assertEquals(savedUser.getEmail(), result.get(10, TimeUnit.SECONDS).getEmail());
+        }
+
+        // Then: one batched query loads the user together with its cards
+        Assertions.assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void warmUpCacheLoadsUsersIntoRedis() throws Exception {
+        // Given:
+        cacheManager.getCache("users").evict(savedUser.getUserId());
+        CustomUserDetails principal = new CustomUserDetails(1L, "ADMIN");
+        Authentication auth = new UsernamePasswordAuthenticationToken(
+                principal,
+                null,
+                List.of(new SimpleGrantedAuthority("ROLE_ADMIN"))
+        );
+
+        // When:
+        ResultActions response = mockMvc.perform(MockMvcRequestBuilders
+                .post("/api/user/cache/warm-up")
+                .with(authentication(auth)));
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (cacheWarmUpService.getStatus().getState() == WarmUpState.RUNNING && System.currentTimeMillis() < deadline)
+            Thread.sleep(20);
+
+        // Then:
+        response.andExpect(MockMvcResultMatchers.status().isAccepted());
+        Assertions.assertEquals(WarmUpState.COMPLETED, cacheWarmUpService.getStatus().getState());
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        UserDto result = userService.getUserById(savedUser.getUserId());
+        Assertions.assertEquals(savedUser.getEmail(), result.getEmail());
+        Assertions.assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void getUsersByIdsLoadsMissesInOneQueryAndServesRepeatsFromCache() throws Exception {
+        // Given:
+        User secondUser = new User();
+        secondUser.setUserId(2);
+        secondUser.setName("Second");
+        secondUser.setSurname("User");
+        secondUser.setEmail("secondUserMail@mail.com");
+        secondUser.setActive(ActiveStatus.ACTIVE);
+        userRepository.saveAndFlush(secondUser);
+        cacheManager.getCache("users").evict(1);
+        cacheManager.getCache("users").evict(2);
+        CustomUserDetails principal = new CustomUserDetails(1L, "ADMIN");
+        Authentication auth = new UsernamePasswordAuthenticationToken(
+                principal,
+                null,
+                List.of(new SimpleGrantedAuthority("ROLE_ADMIN"))
+        );
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // When:
+        ResultActions response = mockMvc.perform(MockMvcRequestBuilders
+                .post("/api/user/batch")
+                .with(authentication(auth))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"ids\": [2, 999, 1]}"));
+        long firstStatements = statistics.getPrepareStatementCount();
+        statistics.clear();
+        ResultActions repeated = mockMvc.perform(MockMvcRequestBuilders
+                .post("/api/user/batch")
+                .with(authentication(auth))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"ids\": [1, 2]}"));
+
+        // Then:
+        response.andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.content.length()").value(2))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.content[0].email").value(secondUser.getEmail()))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.content[1].email").value(savedUser.getEmail()))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.notFound[0]").value(999));
+        repeated.andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.content.length()").value(2));
+        Assertions.assertEquals(1, firstStatements);
+        Assertions.assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void getUsersByIdsAllowsUserToFetchOnlyThemselves() throws Exception {
+        // Given:
+        CustomUserDetails principal = new CustomUserDetails(1L, "USER");
+        Authentication auth = new UsernamePasswordAuthenticationToken(
+                principal,
+                null,
+                List.of(new SimpleGrantedAuthority("ROLE_USER"))
+        );
+
+        // When:
+        ResultActions own = mockMvc.perform(MockMvcRequestBuilders
+                .post("/api/user/batch")
+                .with(authentication(auth))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"ids\": [1]}"));
+        ResultActions other = mockMvc.perform(MockMvcRequestBuilders
+                .post("/api/user/batch")
+                .with(authentication(auth))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"ids\": [1, 2]}"));
+
+        // Then:
+        own.andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.content[0].userId").value(1));
+        other.andExpect(MockMvcResultMatchers.status().isForbidden());
+    }
+
+    @Test
+    public void bulkDeactivateUsersBySurnameSkipsUnchangedAndEvictsCache() throws Exception {
+        // Given:
+        User secondUser = new User();
+        secondUser.setUserId(2);
+        secondUser.setName("Second");
+        secondUser.setSurname("Other");
+        secondUser.setEmail("secondUserMail@mail.com");
+        secondUser.setActive(ActiveStatus.ACTIVE);
+        userRepository.saveAndFlush(secondUser);
+        userService.getUserById(savedUser.getUserId());
+        CustomUserDetails principal = new CustomUserDetails(1L, "ADMIN");
+        Authentication auth = new UsernamePasswordAuthenticationToken(
+                principal,
+                null,
+                List.of(new SimpleGrantedAuthority("ROLE_ADMIN"))
+        );
+
+        // When:
+        ResultActions response = mockMvc.perform(MockMvcRequestBuilders
+                .put("/api/user/bulk/inactive")
+                .with(authentication(auth))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"surname\": \"USER\"}"));
+        ResultActions repeated = mockMvc.perform(MockMvcRequestBuilders
+                .put("/api/user/bulk/inactive")
+                .with(authentication(auth))
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"userIds\": [1, 2]}"));
+
+        // Then:
+        response.andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.active").value("INACTIVE"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.affected").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.chunks").value(1));
+        repeated.andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.affected").value(1));
+        Assertions.assertNull(cacheManager.getCache("users").get(savedUser.getUserId()));
+        Assertions.assertEquals(ActiveStatus.INACTIVE, userService.getUserById(savedUser.getUserId()).getActive());
+        Assertions.assertEquals(ActiveStatus.INACTIVE, userService.getUserById(2).getActive());
+    }
 }
@@ -0,0 +1,185 @@
+package com.user.servise.User.Servise.security;
+
+import com.userservise.app.controllers.CardController;
+import com.userservise.app.controllers.UserController;
+import com.userservise.app.model.dto.BatchRequest;
+import com.userservise.app.security.authorization.AccessPolicy;
+import com.userservise.app.security.authorization.AccessPolicyAuthorizationManager;
+import com.userservise.app.security.model.CustomUserDetails;
+import com.userservise.app.service.CardService;
+import org.aopalliance.intercept.MethodInvocation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.web.context.request.WebRequest;
+
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@TestInstance(TestInstance.Lifecycle.PER_METHOD)
+public class AccessPolicyAuthorizationManagerTest {
+
+    @Mock
+    private CardService cardService;
+
+    private AccessPolicyAuthorizationManager authorizationManager;
+
+    @BeforeEach
+    public void setUp() {
+        authorizationManager = new AccessPolicyAuthorizationManager(() -> cardService);
+    }
+
+    @Test
+    public void userCanOnlyReachOwnUser() throws Exception {
+        // Arrange:
+        Method getUserById = UserController.class.getMethod("getUserById", Integer.class, WebRequest.class);
+
+        // Act:
+        boolean own = granted(user(1, "USER"), getUserById, 1);
+        boolean other = granted(user(1, "USER"), getUserById, 2);
+        boolean admin = granted(user(1, "ADMIN"), getUserById, 2);
+
+        // Assert:
+        assertTrue(own);
+        assertFalse(other);
+        assertTrue(admin);
+    }
+
+    @Test
+    public void adminOnlyMethodsRejectOtherRolesAndAnonymous() throws Exception {
+        // Arrange:
+        Method deleteUsers = UserController.class.getMethod("deleteUsersByIds", BatchRequest.class);
+        Authentication anonymous = new AnonymousAuthenticationToken("key", "anonymousUser",
+                AuthorityUtils.createAuthorityList("ROLE_ANONYMOUS"));
+
+        // Act:
+        boolean user = granted(user(1, "USER"), deleteUsers, batch(1));
+        boolean unknownRole = granted(user(1, "admin"), deleteUsers, batch(1));
+        boolean anonymousUser = granted(anonymous, deleteUsers, batch(1));
+        boolean admin = granted(user(1, "ADMIN"), deleteUsers, batch(1));
+
+        // Assert:
+        assertFalse(user);
+        assertFalse(unknownRole);
+        assertFalse(anonymousUser);
+        assertTrue(admin);
+    }
+
+    @Test
+    public void userBatchMustContainOnlyOwnId() throws Exception {
+        // Arrange:
+        Method getUsersByIds = UserController.class.getMethod("getUsersByIds", BatchRequest.class);
+
+        // Act:
+        boolean own = granted(user(1, "USER"), getUsersByIds, batch(1, 1));
+        boolean mixed = granted(user(1, "USER"), getUsersByIds, batch(1, 2));
+        boolean withNull = granted(user(1, "USER"), getUsersByIds, batch(1, null));
+        boolean missing = granted(user(1, "USER"), getUsersByIds, new BatchRequest());
+
+        // Assert:
+        assertTrue(own);
+        assertFalse(mixed);
+        assertFalse(withNull);
+        assertFalse(missing);
+    }
+
+    @Test
+    public void cardRulesAskCardServiceForOwnership() throws Exception {
+        // Arrange:
+        Method getCardById = CardController.class.getMethod("getCardById", Integer.class);
+        Method getCardsByIds = CardController.class.getMethod("getCardsByIds", BatchRequest.class);
+        when(cardService.isOwner(10, 1)).thenReturn(true);
+        when(cardService.isOwnerOfAll(List.of(10, 11), 1)).thenReturn(false);
+
+        // Act:
+        boolean single = granted(user(1, "USER"), getCardById, 10);
+        boolean batch = granted(user(1, "USER"), getCardsByIds, batch(10, 11));
+        boolean admin = granted(user(1, "ADMIN"), getCardById, 20);
+
+        // Assert:
+        assertTrue(single);
+        assertFalse(batch);
+        assertTrue(admin);
+
+        // Verify:
+        verify(cardService, times(1)).isOwner(10, 1);
+        verify(cardService, never()).isOwner(eq(20), anyInt());
+    }
+
+    @Test
+    public void everyControllerPolicyNamesAnExistingParameter() {
+        // Arrange:
+        List<Method> methods = new ArrayList<>();
+        for (Class<?> controller : List.of(UserController.class, CardController.class))
+            for (Method method : controller.getDeclaredMethods())
+                if (method.isAnnotationPresent(AccessPolicy.class))
+                    methods.add(method);
+
+        // Act & Assert: rules are compiled on first use, so a wrong param name fails here
+        for (Method method : methods)
+            assertDoesNotThrow(() -> granted(user(1, "USER"), method, new Object[method.getParameterCount()]),
+                    method.toString());
+    }
+
+    private boolean granted(Authentication authentication, Method method, Object... arguments) {
+        return authorizationManager.check(() -> authentication, new Invocation(method, arguments)).isGranted();
+    }
+
+    private static Authentication user(long id, String role) {
+        return new UsernamePasswordAuthenticationToken(new CustomUserDetails(id, role), null,
+                AuthorityUtils.createAuthorityList("ROLE_" + role));
+    }
+
+    private static BatchRequest batch(Integer... ids) {
+        BatchRequest request = new BatchRequest();
+        request.setIds(Arrays.asList(ids));
+
+        return request;
+    }
+
+    record Invocation(Object target, Method method, Object[] arguments) implements MethodInvocation {
+
+        Invocation(Method method, Object[] arguments) {
+            this(null, method, arguments);
+        }
+
+        @Override
+        public Method getMethod() {
+            return method;
+        }
+
+        @Override
+        public Object[] getArguments() {
+            return arguments;
+        }
+
+        @Override
+        public Object proceed() {
+            return null;
+        }
+
+        @Override
+        public Object getThis() {
+            return target;
+        }
+
+        @Override
+        public AccessibleObject getStaticPart() {
+            return method;
+        }
+    }
+}
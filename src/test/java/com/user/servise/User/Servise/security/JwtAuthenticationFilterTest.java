@@ -0,0 +1,93 @@
+package com.user.servise.User.Servise.security;
+
+import com.userservise.app.security.filter.JwtAuthenticationFilter;
+import com.userservise.app.security.model.CustomUserDetails;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_METHOD)
+public class JwtAuthenticationFilterTest {
+
+    private final JwtAuthenticationFilter filter = new JwtAuthenticationFilter();
+
+    @AfterEach
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    public void trustedHeadersBecomeAuthenticatedPrincipal() throws Exception {
+        // Arrange:
+        MockHttpServletRequest request = request("/api/user/7", "true", "7", "ADMIN");
+
+        // Act:
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+        // Assert:
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        assertTrue(authentication.isAuthenticated());
+        assertEquals(7L, ((CustomUserDetails) authentication.getPrincipal()).getId());
+        assertEquals("7", authentication.getName());
+        assertEquals(Set.of("ROLE_ADMIN"), AuthorityUtils.authorityListToSet(authentication.getAuthorities()));
+    }
+
+    @Test
+    public void knownRolesShareOneAuthorityList() throws Exception {
+        // Act:
+        filter.doFilter(request("/api/user/1", "true", "1", "USER"), new MockHttpServletResponse(), new MockFilterChain());
+        Object first = SecurityContextHolder.getContext().getAuthentication().getAuthorities();
+        SecurityContextHolder.clearContext();
+        filter.doFilter(request("/api/user/2", "true", "2", "USER"), new MockHttpServletResponse(), new MockFilterChain());
+        Object second = SecurityContextHolder.getContext().getAuthentication().getAuthorities();
+
+        // Assert:
+        assertSame(first, second);
+    }
+
+    @Test
+    public void invalidOrIncompleteHeadersLeaveRequestAnonymous() throws Exception {
+        // Act:
+        filter.doFilter(request("/api/user/1", "false", "1", "ADMIN"), new MockHttpServletResponse(), new MockFilterChain());
+        Authentication notValid = SecurityContextHolder.getContext().getAuthentication();
+        filter.doFilter(request("/api/user/1", "true", null, "ADMIN"), new MockHttpServletResponse(), new MockFilterChain());
+        Authentication noUser = SecurityContextHolder.getContext().getAuthentication();
+
+        // Assert:
+        assertNull(notValid);
+        assertNull(noUser);
+    }
+
+    @Test
+    public void actuatorRequestsSkipFilter() throws Exception {
+        // Act:
+        filter.doFilter(request("/actuator/health", "true", "1", "ADMIN"), new MockHttpServletResponse(), new MockFilterChain());
+        Authentication actuator = SecurityContextHolder.getContext().getAuthentication();
+        filter.doFilter(request("/actuatorish", "true", "1", "ADMIN"), new MockHttpServletResponse(), new MockFilterChain());
+        Authentication similarPath = SecurityContextHolder.getContext().getAuthentication();
+
+        // Assert:
+        assertNull(actuator);
+        assertNotNull(similarPath);
+    }
+
+    private static MockHttpServletRequest request(String uri, String valid, String userId, String role) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        request.addHeader("X-Is-Valid", valid);
+        if (userId != null)
+            request.addHeader("X-User-Id", userId);
+        request.addHeader("X-Role", role);
+
+        return request;
+    }
+}
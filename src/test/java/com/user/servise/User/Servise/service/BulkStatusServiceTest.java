@@ -0,0 +1,171 @@
+package com.user.servise.User.Servise.service;
+
+import com.userservise.app.model.constants.ErrorMessage;
+import com.userservise.app.model.dto.CardStatusRequest;
+import com.userservise.app.model.dto.UserStatusRequest;
+import com.userservise.app.model.enums.ActiveStatus;
+import com.userservise.app.model.exception.InvalidDataException;
+import com.userservise.app.model.response.BulkStatusResponse;
+import com.userservise.app.repository.CardRepository;
+import com.userservise.app.repository.UserRepository;
+import com.userservise.app.service.Impl.BulkStatusServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@TestInstance(TestInstance.Lifecycle.PER_METHOD)
+public class BulkStatusServiceTest {
+
+    @Mock
+    private CardRepository cardRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private CacheManager cacheManager;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private Cache cardsCache;
+
+    @Mock
+    private Cache cardsByUserCache;
+
+    @Mock
+    private Cache usersCache;
+
+    private BulkStatusServiceImpl bulkStatusService;
+
+    @BeforeEach
+    void setUp() {
+        bulkStatusService = new BulkStatusServiceImpl(cardRepository, userRepository, cacheManager, transactionManager, 2);
+        lenient().when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        lenient().when(cacheManager.getCache("cards")).thenReturn(cardsCache);
+        lenient().when(cacheManager.getCache("cardsByUser")).thenReturn(cardsByUserCache);
+        lenient().when(cacheManager.getCache("users")).thenReturn(usersCache);
+    }
+
+    @Test
+    public void changeCardStatusByIdsRunsOneTransactionPerChunk() {
+        // Arrange:
+        CardStatusRequest request = new CardStatusRequest();
+        request.setCardIds(List.of(1, 2, 2, 3));
+        when(cardRepository.updateActiveByIdIn(List.of(1, 2), "INACTIVE"))
+                .thenReturn(List.of(changed(1, 10), changed(2, 10)));
+        when(cardRepository.updateActiveByIdIn(List.of(3), "INACTIVE")).thenReturn(List.of());
+
+        // Act:
+        BulkStatusResponse result = bulkStatusService.changeCardStatus(request, ActiveStatus.INACTIVE);
+
+        // Assert:
+        assertEquals(ActiveStatus.INACTIVE, result.getActive());
+        assertEquals(2, result.getAffected());
+        assertEquals(2, result.getChunks());
+
+        // Verify:
+        InOrder inOrder = inOrder(cardsCache, cardsByUserCache, usersCache);
+        inOrder.verify(cardsCache).evict(1);
+        inOrder.verify(cardsCache).evict(2);
+        inOrder.verify(cardsByUserCache).evict(10);
+        inOrder.verify(usersCache).evict(10);
+        verify(transactionManager, times(2)).commit(any());
+    }
+
+    @Test
+    public void changeCardStatusByHolderStopsAtShortChunk() {
+        // Arrange:
+        CardStatusRequest request = new CardStatusRequest();
+        request.setHolder("50%");
+        when(cardRepository.updateActiveByHolder("%50\\%%", "ACTIVE", 2))
+                .thenReturn(List.of(changed(1, 10), changed(2, 11)))
+                .thenReturn(List.of(changed(3, 11)));
+
+        // Act:
+        BulkStatusResponse result = bulkStatusService.changeCardStatus(request, ActiveStatus.ACTIVE);
+
+        // Assert:
+        assertEquals(3, result.getAffected());
+        assertEquals(2, result.getChunks());
+
+        // Verify:
+        verify(cardRepository, times(2)).updateActiveByHolder(anyString(), anyString(), anyInt());
+        verify(usersCache, times(2)).evict(11);
+    }
+
+    @Test
+    public void changeUserStatusByNameEvictsChangedUsers() {
+        // Arrange:
+        UserStatusRequest request = new UserStatusRequest();
+        request.setSurname("Smith");
+        when(userRepository.updateActiveByName(null, "%smith%", "INACTIVE", 2)).thenReturn(List.of(5));
+
+        // Act:
+        BulkStatusResponse result = bulkStatusService.changeUserStatus(request, ActiveStatus.INACTIVE);
+
+        // Assert:
+        assertEquals(1, result.getAffected());
+        assertEquals(1, result.getChunks());
+
+        // Verify:
+        verify(usersCache, times(1)).evict(5);
+        verifyNoInteractions(cardsCache, cardsByUserCache);
+    }
+
+    @Test
+    public void rejectsMissingOrAmbiguousSelector() {
+        // Arrange:
+        CardStatusRequest none = new CardStatusRequest();
+        none.setHolder(" ");
+        CardStatusRequest both = new CardStatusRequest();
+        both.setCardIds(List.of(1));
+        both.setHolder("John");
+        UserStatusRequest withNull = new UserStatusRequest();
+        withNull.setUserIds(Arrays.asList(1, null));
+
+        // Act:
+        InvalidDataException noneError = assertThrows(InvalidDataException.class,
+                () -> bulkStatusService.changeCardStatus(none, ActiveStatus.INACTIVE));
+        assertThrows(InvalidDataException.class, () -> bulkStatusService.changeCardStatus(both, ActiveStatus.INACTIVE));
+        InvalidDataException nullError = assertThrows(InvalidDataException.class,
+                () -> bulkStatusService.changeUserStatus(withNull, ActiveStatus.INACTIVE));
+
+        // Assert:
+        assertEquals(ErrorMessage.INVALID_BULK_SELECTOR.getMessage("cardIds, userIds, holder"), noneError.getMessage());
+        assertEquals(ErrorMessage.INVALID_BATCH_SIZE.getMessage(10_000), nullError.getMessage());
+
+        // Verify:
+        verifyNoInteractions(cardRepository, userRepository, transactionManager);
+    }
+
+    private static CardRepository.ChangedCard changed(Integer id, Integer ownerId) {
+        return new CardRepository.ChangedCard() {
+            @Override
+            public Integer getId() {
+                return id;
+            }
+
+            @Override
+            public Integer getOwnerId() {
+                return ownerId;
+            }
+        };
+    }
+}
@@ -0,0 +1,159 @@
+package com.user.servise.User.Servise.service;
+
+import com.userservise.app.cache.TwoLevelCacheManager;
+import com.userservise.app.mapper.CardMapper;
+import com.userservise.app.mapper.UserMapper;
+import com.userservise.app.model.dto.CardDto;
+import com.userservise.app.model.dto.UserDto;
+import com.userservise.app.model.entity.Card;
+import com.userservise.app.model.entity.User;
+import com.userservise.app.model.enums.WarmUpState;
+import com.userservise.app.model.response.CacheWarmUpStatus;
+import com.userservise.app.repository.CardRepository;
+import com.userservise.app.repository.UserRepository;
+import com.userservise.app.service.Impl.CacheWarmUpServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@TestInstance(TestInstance.Lifecycle.PER_METHOD)
+public class CacheWarmUpServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private CardRepository cardRepository;
+
+    @Mock
+    private UserMapper userMapper;
+
+    @Mock
+    private CardMapper cardMapper;
+
+    @Mock
+    private TwoLevelCacheManager cacheManager;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private CacheWarmUpServiceImpl cacheWarmUpService;
+
+    @BeforeEach
+    void setUp() {
+        cacheWarmUpService = new CacheWarmUpServiceImpl(userRepository, cardRepository, userMapper, cardMapper, cacheManager,
+                transactionManager, new SyncTaskExecutor(), true, 3, 2, 0.5, Duration.ofMinutes(2));
+        lenient().when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+    }
+
+    @Test
+    public void warmUpPagesRecentUsersByKeysetAndPreloadsCaches() {
+        // Arrange:
+        User first = user(1, 10, LocalDateTime.of(2024, 6, 3, 0, 0));
+        User second = user(2, 20, LocalDateTime.of(2024, 6, 2, 0, 0));
+        User third = user(3, 30, LocalDateTime.of(2024, 6, 1, 0, 0));
+        Card card = new Card();
+        card.setId(7);
+        card.setOwner(first);
+        CardDto cardDto = new CardDto();
+        UserDto userDto = new UserDto();
+
+        when(userRepository.countByUpdatedAtIsNotNull()).thenReturn(5L);
+        when(userRepository.findRecentlyUpdated(Limit.of(2))).thenReturn(List.of(first, second));
+        when(userRepository.findRecentlyUpdatedBefore(second.getUpdatedAt(), second.getId(), Limit.of(1))).thenReturn(List.of(third));
+        when(cardRepository.findCardsByOwnerUserIdIn(List.of(10, 20))).thenReturn(List.of(card));
+        when(cardRepository.findCardsByOwnerUserIdIn(List.of(30))).thenReturn(List.of());
+        when(cardMapper.toDto(card)).thenReturn(cardDto);
+        when(userMapper.toDto(any(User.class), anyList())).thenReturn(userDto);
+        when(cacheManager.invalidationClock()).thenReturn(4L, 9L);
+
+        // Act:
+        CacheWarmUpStatus result = cacheWarmUpService.warmUp();
+
+        // Assert:
+        assertEquals(WarmUpState.COMPLETED, result.getState());
+        assertEquals(3, result.getLoadedUsers());
+        assertEquals(3, result.getTargetUsers());
+        assertTrue(result.isReady());
+
+        // Verify:
+        Duration ttl = Duration.ofMinutes(2);
+        verify(cacheManager, times(1)).preload("users", Map.of(10, userDto, 20, userDto), 4L, ttl);
+        verify(cacheManager, times(1)).preload("cards", Map.of(7, cardDto), 4L, ttl);
+        verify(cacheManager, times(1)).preload("cardsByUser", Map.of(10, List.of(cardDto), 20, List.of()), 4L, ttl);
+        verify(cacheManager, times(1)).preload("users", Map.of(30, userDto), 9L, ttl);
+        verify(userMapper, times(1)).toDto(first, List.of(card));
+    }
+
+    @Test
+    public void warmUpTargetsOnlyUsersItCanPageThrough() {
+        // Arrange: of all users only one has an update time, so only one comes back from the pages
+        User first = user(1, 10, LocalDateTime.of(2024, 6, 3, 0, 0));
+        when(userRepository.countByUpdatedAtIsNotNull()).thenReturn(1L);
+        when(userRepository.findRecentlyUpdated(Limit.of(1))).thenReturn(List.of(first));
+        when(cardRepository.findCardsByOwnerUserIdIn(List.of(10))).thenReturn(List.of());
+        when(userMapper.toDto(any(User.class), anyList())).thenReturn(new UserDto());
+
+        // Act:
+        CacheWarmUpStatus result = cacheWarmUpService.warmUp();
+
+        // Assert:
+        assertEquals(1, result.getTargetUsers());
+        assertEquals(1, result.getLoadedUsers());
+        assertTrue(result.isReady());
+
+        // Verify:
+        verify(userRepository, never()).count();
+    }
+
+    @Test
+    public void getStatusIsNotReadyBeforeFirstWarmUp() {
+        // Act:
+        CacheWarmUpStatus result = cacheWarmUpService.getStatus();
+
+        // Assert:
+        assertEquals(WarmUpState.PENDING, result.getState());
+        assertFalse(result.isReady());
+    }
+
+    @Test
+    public void warmUpFailureStillReportsReady() {
+        // Arrange:
+        when(userRepository.countByUpdatedAtIsNotNull()).thenThrow(new IllegalStateException("database is down"));
+
+        // Act:
+        CacheWarmUpStatus result = cacheWarmUpService.warmUp();
+
+        // Assert:
+        assertEquals(WarmUpState.FAILED, result.getState());
+        assertTrue(result.isReady());
+
+        // Verify:
+        verifyNoInteractions(cacheManager);
+    }
+
+    private static User user(int id, int userId, LocalDateTime updatedAt) {
+        User user = new User();
+        user.setId(id);
+        user.setUserId(userId);
+        user.setUpdatedAt(updatedAt);
+
+        return user;
+    }
+}
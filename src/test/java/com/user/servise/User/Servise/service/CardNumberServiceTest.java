@@ -0,0 +1,73 @@
+package com.user.servise.User.Servise.service;
+
+import com.userservise.app.model.constants.ErrorMessage;
+import com.userservise.app.model.exception.DataExistException;
+import com.userservise.app.service.Impl.CardNumberServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_METHOD)
+public class CardNumberServiceTest {
+
+    private final CardNumberServiceImpl cardNumberService = new CardNumberServiceImpl();
+
+    @Test
+    public void allocateSuccessful() {
+        // Arrange:
+        List<String> tried = new ArrayList<>();
+
+        // Act:
+        String result = cardNumberService.allocate(number -> {
+            tried.add(number);
+            return Optional.of(number);
+        });
+
+        // Assert:
+        assertTrue(result.matches("\\d{16}"));
+
+        // Verify:
+        assertEquals(List.of(result), tried);
+    }
+
+    @Test
+    public void allocateRetriesWhenNumberIsTaken() {
+        // Arrange: the first two numbers were taken by concurrent inserts
+        List<String> tried = new ArrayList<>();
+
+        // Act:
+        String result = cardNumberService.allocate(number -> {
+            tried.add(number);
+            return tried.size() < 3 ? Optional.empty() : Optional.of(number);
+        });
+
+        // Assert:
+        assertEquals(tried.getLast(), result);
+
+        // Verify:
+        assertEquals(3, tried.size());
+    }
+
+    @Test
+    public void allocateThrowException() {
+        // Arrange:
+        List<String> tried = new ArrayList<>();
+
+        // Act:
+        DataExistException result = assertThrows(DataExistException.class, () -> cardNumberService.allocate(number -> {
+            tried.add(number);
+            return Optional.empty();
+        }));
+
+        // Assert:
+        assertEquals(ErrorMessage.CARD_NUMBER_GENERATION_FAILED.getMessage(10), result.getMessage());
+
+        // Verify:
+        assertEquals(10, tried.size());
+    }
+}
@@ -1,5 +1,7 @@
 package com.user.servise.User.Servise.service;
 
+import com.userservise.app.cache.CardOwnerIndex;
+import com.userservise.app.cache.RedisCircuitBreaker;
 import com.userservise.app.mapper.CardMapper;
 import com.userservise.app.model.constants.ErrorMessage;
 import com.userservise.app.model.dto.CardDto;
@@ -8,25 +10,41 @@ import com.userservise.app.model.entity.User;
 import com.userservise.app.model.enums.ActiveStatus;
 import com.userservise.app.model.exception.InvalidDataException;
 import com.userservise.app.model.exception.NotFoundException;
+import com.userservise.app.model.response.BatchResponse;
 import com.userservise.app.repository.CardRepository;
 import com.userservise.app.repository.UserRepository;
+import com.userservise.app.service.CardNumberService;
 import com.userservise.app.service.Impl.CardServiceImpl;
+import com.userservise.app.utils.MicroBatcher;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
 
+import java.time.Duration;
+import java.time.LocalDate;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 
 import static org.mockito.Mockito.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -44,6 +62,24 @@ public class CardServiceTest {
     @Mock
     private UserRepository userRepository;
 
+    @Mock
+    private CardNumberService cardNumberService;
+
+    @Mock
+    private CardOwnerIndex cardOwnerIndex;
+
+    @Mock
+    private CacheManager cacheManager;
+
+    @Mock
+    private Cache cardsByUserCache;
+
+    @Mock
+    private Cache usersCache;
+
+    @Mock
+    private MicroBatcher<Integer, CardDto> cardBatchLoader;
+
     @InjectMocks
     private CardServiceImpl cardService;
 
@@ -70,14 +106,16 @@ public class CardServiceTest {
         user.setUserId(1);
         user.setName("user");
         user.setCards(List.of(card));
+        card.setOwner(user);
     }
 
     @Test
     public void createCardSuccessful() {
         // Arrange:
-        when(userRepository.findUserByUserId(anyInt())).thenReturn(Optional.of(user));
-        when(cardRepository.save(any())).thenReturn(card);
-        when(cardMapper.toDto(card)).thenReturn(cardDto);
+        when(userRepository.findUserByUserIdForUpdate(anyInt())).thenReturn(Optional.of(user));
+        when(userRepository.countCardsByUserId(anyInt())).thenReturn(1L);
+        CardRepository.CardRow row = insertedRow();
+        when(cardMapper.toDto(row)).thenReturn(cardDto);
 
         // Act:
         CardDto result = cardService.createCard(anyInt());
@@ -90,16 +128,34 @@ public class CardServiceTest {
         assertEquals(user.getCards().getFirst().getNumber(), result.getNumber());
 
         // Verify:
-        verify(userRepository, times(1)).findUserByUserId(anyInt());
-        verify(cardRepository, times(1)).save(any(Card.class));
-        verify(cardMapper, times(1)).toDto(card);
+        verify(userRepository, times(1)).findUserByUserIdForUpdate(anyInt());
+        verify(cardNumberService, times(1)).allocate(any());
+        verify(cardRepository, times(1)).insertCard(anyInt(), eq(card.getNumber()), anyString(), any(LocalDate.class), eq("INACTIVE"));
+        verify(cardRepository, never()).save(any(Card.class));
+        verify(cardOwnerIndex, times(1)).register(eq(card.getId()), anyInt());
+        verify(cardMapper, times(1)).toDto(row);
+    }
+
+    @Test
+    public void createCardLimitReachedThrowException() {
+        // Arrange:
+        when(userRepository.findUserByUserIdForUpdate(1)).thenReturn(Optional.of(user));
+        when(userRepository.countCardsByUserId(1)).thenReturn(5L);
+
+        // Act:
+        InvalidDataException result = assertThrows(InvalidDataException.class, () -> cardService.createCard(1));
+
+        // Assert:
+        assertEquals(ErrorMessage.USER_CANNOT_HAVE_MORE_THAN_5_CARDS.getMessage(1), result.getMessage());
+
+        // Verify:
+        verify(cardRepository, never()).save(any(Card.class));
     }
 
     @Test
     public void getCardByIdSuccessful() {
         // Arrange:
-        when(cardRepository.findById(1)).thenReturn(Optional.of(card));
-        when(cardMapper.toDto(card)).thenReturn(cardDto);
+        when(cardBatchLoader.load(1)).thenReturn(cardDto);
 
         // Act:
         CardDto result = cardService.getCardById(1);
@@ -112,14 +168,14 @@ public class CardServiceTest {
         assertEquals(user.getCards().getFirst().getNumber(), result.getNumber());
 
         // Verify:
-        verify(cardRepository, times(1)).findById(anyInt());
-        verify(cardMapper, times(1)).toDto(card);
+        verify(cardBatchLoader, times(1)).load(1);
+        verify(cardRepository, never()).findById(anyInt());
     }
 
     @Test
     public void getCardByIdCardNotFoundThrowException() {
         // Arrange:
-        when(cardRepository.findById(1)).thenReturn(Optional.empty());
+        when(cardBatchLoader.load(1)).thenReturn(null);
 
         // Act:
         NotFoundException result = assertThrows(NotFoundException.class, () -> cardService.getCardById(1));
@@ -153,6 +209,27 @@ public class CardServiceTest {
     }
 
 
+    @Test
+    public void scrollCardsSuccessful() {
+        // Arrange:
+        Slice<Card> response = new SliceImpl<>(List.of(card), PageRequest.of(0, 10), false);
+
+        when(cardRepository.findBy(any(Specification.class), any())).thenReturn(response);
+        when(cardMapper.toDto(card)).thenReturn(cardDto);
+
+        // Act:
+        Slice<CardDto> result = cardService.scrollCards("user", 0, 10);
+
+        // Assert:
+        assertNotNull(result);
+        assertFalse(result.hasNext());
+        assertEquals(cardDto.getId(), result.getContent().getFirst().getId());
+
+        // Verify:
+        verify(cardRepository, times(1)).findBy(any(Specification.class), any());
+        verify(cardMapper, times(1)).toDto(card);
+    }
+
     @Test
     public void getAllByUserIdSuccessful() {
         // Arrange:
@@ -179,11 +256,13 @@ public class CardServiceTest {
         // Arrange:
         int cardId = card.getId();
         cardDto.setActive(ActiveStatus.ACTIVE);
-        card.setActive(ActiveStatus.INACTIVE);
+        CardRepository.CardRow row = mock(CardRepository.CardRow.class);
 
-        when(cardRepository.findCardById(cardId)).thenReturn(Optional.of(card));
-        when(cardRepository.save(card)).thenReturn(card);
-        when(cardMapper.toDto(card)).thenReturn(cardDto);
+        when(row.getOwnerId()).thenReturn(user.getUserId());
+        when(cardRepository.updateActive(cardId, "ACTIVE")).thenReturn(Optional.of(row));
+        when(cardMapper.toDto(row)).thenReturn(cardDto);
+        when(cacheManager.getCache("cardsByUser")).thenReturn(cardsByUserCache);
+        when(cacheManager.getCache("users")).thenReturn(usersCache);
 
         // Act:
         CardDto result = cardService.activateCard(cardId);
@@ -191,15 +270,20 @@ public class CardServiceTest {
         // Assert:
         assertEquals(ActiveStatus.ACTIVE, result.getActive());
 
-        // Verify:
-        verify(cardRepository, times(1)).findCardById(cardId);
-        verify(cardRepository, times(1)).save(card);
+        // Verify: one statement also moves the owner's stamp; its card list is dropped before the user entry
+        verify(cardRepository, times(1)).updateActive(cardId, "ACTIVE");
+        verify(cardRepository, never()).findCardById(anyInt());
+        verify(cardRepository, never()).save(any(Card.class));
+        verify(userRepository, never()).bumpVersion(anyInt());
+        InOrder inOrder = inOrder(cardsByUserCache, usersCache);
+        inOrder.verify(cardsByUserCache).evict(user.getUserId());
+        inOrder.verify(usersCache).evict(user.getUserId());
     }
 
     @Test
     public void activateCardCardNotFoundThrowException() {
         // Arrange:
-        when(cardRepository.findCardById(anyInt())).thenReturn(Optional.empty());
+        when(cardRepository.updateActive(1, "ACTIVE")).thenReturn(Optional.empty());
 
         // Act:
         NotFoundException result = assertThrows(NotFoundException.class, () -> cardService.activateCard(1));
@@ -209,7 +293,8 @@ public class CardServiceTest {
         assertEquals(ErrorMessage.CARD_NOT_FOUND_BY_ID.getMessage(1), result.getMessage());
 
         // Verify:
-        verify(cardRepository, times(1)).findCardById(anyInt());
+        verify(cardRepository, times(1)).updateActive(1, "ACTIVE");
+        verifyNoInteractions(cacheManager);
     }
 
     @Test
@@ -217,10 +302,11 @@ public class CardServiceTest {
         // Arrange:
         int cardId = card.getId();
         cardDto.setActive(ActiveStatus.INACTIVE);
+        CardRepository.CardRow row = mock(CardRepository.CardRow.class);
 
-        when(cardRepository.findCardById(cardId)).thenReturn(Optional.of(card));
-        when(cardRepository.save(any())).thenReturn(card);
-        when(cardMapper.toDto(card)).thenReturn(cardDto);
+        when(row.getOwnerId()).thenReturn(user.getUserId());
+        when(cardRepository.updateActive(cardId, "INACTIVE")).thenReturn(Optional.of(row));
+        when(cardMapper.toDto(row)).thenReturn(cardDto);
 
         // Act:
         CardDto result = cardService.deactivateCard(cardId);
@@ -230,14 +316,14 @@ public class CardServiceTest {
         assertEquals(ActiveStatus.INACTIVE, result.getActive());
 
         // Verify:
-        verify(cardRepository, times(1)).findCardById(cardId);
-        verify(cardRepository, times(1)).save(any(Card.class));
+        verify(cardRepository, times(1)).updateActive(cardId, "INACTIVE");
+        verify(cardRepository, never()).save(any(Card.class));
     }
 
     @Test
     public void deactivateCardCardNotFoundThrowException() {
         // Arrange:
-        when(cardRepository.findCardById(anyInt())).thenReturn(Optional.empty());
+        when(cardRepository.updateActive(1, "INACTIVE")).thenReturn(Optional.empty());
 
         // Act:
         NotFoundException result = assertThrows(NotFoundException.class, () -> cardService.deactivateCard(1));
@@ -247,7 +333,7 @@ public class CardServiceTest {
         assertEquals(ErrorMessage.CARD_NOT_FOUND_BY_ID.getMessage(1), result.getMessage());
 
         // Verify:
-        verify(cardRepository, times(1)).findCardById(anyInt());
+        verify(cardRepository, times(1)).updateActive(1, "INACTIVE");
     }
 
     @Test
@@ -255,13 +341,21 @@ public class CardServiceTest {
         // Arrange:
         when(cardRepository.existsById(anyInt())).thenReturn(true);
         doNothing().when(cardRepository).deleteById(anyInt());
+        when(cardOwnerIndex.findOwnerId(1)).thenReturn(Optional.of(user.getUserId()));
+        when(cacheManager.getCache("cardsByUser")).thenReturn(cardsByUserCache);
+        when(cacheManager.getCache("users")).thenReturn(usersCache);
 
         // Act:
         cardService.deleteCard(1);
 
-        // Verify:
+        // Verify: the owner's stamp moves, and its card list is dropped before the user entry
         verify(cardRepository, times(1)).existsById(anyInt());
         verify(cardRepository, times(1)).deleteById(anyInt());
+        verify(cardOwnerIndex, times(1)).remove(1);
+        InOrder inOrder = inOrder(userRepository, cardsByUserCache, usersCache);
+        inOrder.verify(userRepository).bumpVersion(user.getUserId());
+        inOrder.verify(cardsByUserCache).evict(user.getUserId());
+        inOrder.verify(usersCache).evict(user.getUserId());
     }
 
     @Test
@@ -279,4 +373,116 @@ public class CardServiceTest {
         // Verify:
         verify(cardRepository, times(1)).existsById(anyInt());
     }
+
+    @Test
+    public void isOwnerReturnTrueForOwner() {
+        // Arrange:
+        when(cardOwnerIndex.findOwnerId(1)).thenReturn(Optional.of(1));
+
+        // Act:
+        Boolean result = cardService.isOwner(1, 1);
+
+        // Assert:
+        assertTrue(result);
+
+        // Verify:
+        verify(cardOwnerIndex, times(1)).findOwnerId(1);
+        verify(cardRepository, never()).findCardById(anyInt());
+    }
+
+    @Test
+    public void isOwnerAndCreateCardWorkWhileRedisIsDown() {
+        // Arrange:
+        CardServiceImpl service = cardServiceWithRedisDown();
+        when(cardRepository.findOwnerUserIdById(1)).thenReturn(Optional.of(1));
+        when(userRepository.findUserByUserIdForUpdate(1)).thenReturn(Optional.of(user));
+        when(userRepository.countCardsByUserId(1)).thenReturn(1L);
+        CardRepository.CardRow row = insertedRow();
+        when(cardMapper.toDto(row)).thenReturn(cardDto);
+
+        // Act:
+        Boolean owner = service.isOwner(1, 1);
+        Boolean notOwner = service.isOwner(1, 2);
+        CardDto created = service.createCard(1);
+
+        // Assert:
+        assertTrue(owner);
+        assertFalse(notOwner);
+        assertEquals(cardDto.getId(), created.getId());
+
+        // Verify: ownership came from the database once, then from the local index
+        verify(cardRepository, times(1)).findOwnerUserIdById(1);
+        verify(cardRepository, times(1)).insertCard(eq(1), eq(card.getNumber()), anyString(), any(LocalDate.class), eq("INACTIVE"));
+    }
+
+    @Test
+    public void isOwnerReturnFalseForOtherUserOrMissingCard() {
+        // Arrange:
+        when(cardOwnerIndex.findOwnerId(1)).thenReturn(Optional.of(2));
+        when(cardOwnerIndex.findOwnerId(2)).thenReturn(Optional.empty());
+
+        // Act & Assert:
+        assertFalse(cardService.isOwner(1, 1));
+        assertFalse(cardService.isOwner(2, 1));
+    }
+
+    @Test
+    public void getCardsByIdsReportsMissingCards() {
+        // Arrange:
+        when(cardRepository.findCardsWithOwnerByIdIn(Set.of(1, 2))).thenReturn(List.of(card));
+        when(cardMapper.toDto(card)).thenReturn(cardDto);
+
+        // Act:
+        BatchResponse<CardDto> result = cardService.getCardsByIds(List.of(2, 1));
+
+        // Assert:
+        assertEquals(List.of(cardDto), result.getContent());
+        assertEquals(List.of(2), result.getNotFound());
+
+        // Verify:
+        verify(cardRepository, times(1)).findCardsWithOwnerByIdIn(anyCollection());
+    }
+
+    @Test
+    public void isOwnerOfAllRequiresEveryCardToBelongToUser() {
+        // Arrange:
+        when(cardOwnerIndex.findOwnerId(1)).thenReturn(Optional.of(1));
+        when(cardOwnerIndex.findOwnerId(2)).thenReturn(Optional.of(2));
+
+        // Act:
+        Boolean ownsFirst = cardService.isOwnerOfAll(List.of(1), 1);
+        Boolean ownsBoth = cardService.isOwnerOfAll(List.of(1, 2), 1);
+
+        // Assert:
+        assertTrue(ownsFirst);
+        assertFalse(ownsBoth);
+    }
+
+    // Same service over a real owner index whose Redis refuses every connection.
+    @SuppressWarnings("unchecked")
+    private CardServiceImpl cardServiceWithRedisDown() {
+        StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+        HashOperations<String, Object, Object> hashOperations = mock(HashOperations.class);
+        when(redisTemplate.opsForHash()).thenReturn(hashOperations);
+        RedisConnectionFailureException failure = new RedisConnectionFailureException("connection refused");
+        lenient().when(hashOperations.get(anyString(), any())).thenThrow(failure);
+        lenient().doThrow(failure).when(hashOperations).put(anyString(), any(), any());
+        CardOwnerIndex ownerIndex = new CardOwnerIndex(cardRepository, redisTemplate,
+                new RedisCircuitBreaker(5, Duration.ofMinutes(1), new SimpleMeterRegistry()), 100);
+
+        return new CardServiceImpl(cardRepository, cardMapper, userRepository, cardNumberService, ownerIndex,
+                cacheManager, cardBatchLoader);
+    }
+
+    // The number service hands the card's number to the insert, which takes it.
+    private CardRepository.CardRow insertedRow() {
+        CardRepository.CardRow row = mock(CardRepository.CardRow.class);
+        when(row.getId()).thenReturn(card.getId());
+        when(cardNumberService.allocate(any())).thenAnswer(invocation ->
+                invocation.<Function<String, Optional<?>>>getArgument(0).apply(card.getNumber()).orElseThrow());
+        when(cardRepository.insertCard(anyInt(), eq(card.getNumber()), anyString(), any(LocalDate.class), eq("INACTIVE")))
+                .thenReturn(Optional.of(row));
+
+        return row;
+    }
 }
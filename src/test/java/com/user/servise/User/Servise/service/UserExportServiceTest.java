@@ -0,0 +1,77 @@
+package com.user.servise.User.Servise.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.userservise.app.mapper.UserMapper;
+import com.userservise.app.model.dto.UserDto;
+import com.userservise.app.model.entity.User;
+import com.userservise.app.repository.UserRepository;
+import com.userservise.app.service.Impl.UserExportServiceImpl;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@TestInstance(TestInstance.Lifecycle.PER_METHOD)
+public class UserExportServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private UserMapper userMapper;
+
+    @Mock
+    private EntityManager entityManager;
+
+    private UserExportServiceImpl userExportService;
+
+    @BeforeEach
+    void setUp() {
+        userExportService = new UserExportServiceImpl(userRepository, userMapper,
+                new ObjectMapper().registerModule(new JavaTimeModule()), entityManager);
+    }
+
+    @Test
+    public void exportUsersFlushesInBatchesNotPerUser() {
+        // Arrange:
+        when(userRepository.streamAllWithCards())
+                .thenReturn(IntStream.rangeClosed(1, 2_500).mapToObj(i -> new Object[]{new User(), null}));
+        when(userMapper.toDto(any(User.class), anyList())).thenAnswer(invocation -> {
+            UserDto dto = new UserDto();
+            dto.setName("Exported");
+            return dto;
+        });
+        FlushCountingStream out = new FlushCountingStream();
+
+        // Act:
+        userExportService.exportUsers(out);
+
+        // Assert: one flush per 1,000 users plus the one on close
+        String body = out.toString(StandardCharsets.UTF_8);
+        assertEquals(2_500, body.lines().count());
+        assertTrue(body.lines().allMatch(line -> line.contains("\"name\":\"Exported\"")));
+        assertEquals(3, out.flushes);
+    }
+
+    private static class FlushCountingStream extends ByteArrayOutputStream {
+
+        private int flushes;
+
+        @Override
+        public void flush() {
+            flushes++;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.user.servise.User.Servise.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.userservise.app.mapper.UserMapper;
+import com.userservise.app.model.constants.ErrorMessage;
+import com.userservise.app.model.entity.User;
+import com.userservise.app.model.enums.ImportStatus;
+import com.userservise.app.model.exception.InvalidDataException;
+import com.userservise.app.model.response.UserImportResponse;
+import com.userservise.app.repository.UserRepository;
+import com.userservise.app.service.Impl.UserImportServiceImpl;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@TestInstance(TestInstance.Lifecycle.PER_METHOD)
+public class UserImportServiceTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private UserMapper userMapper;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    private UserImportServiceImpl userImportService;
+
+    @BeforeEach
+    void setUp() {
+        userImportService = new UserImportServiceImpl(userRepository, userMapper, validator, objectMapper, transactionManager, 2);
+        lenient().when(transactionManager.getTransaction(any())).thenReturn(new SimpleTransactionStatus());
+        lenient().when(userMapper.createUser(any())).thenReturn(new User());
+    }
+
+    @Test
+    public void importNdjsonReportsResultPerRow() {
+        // Arrange:
+        when(userRepository.findExistingEmails(anyCollection())).thenReturn(Set.of("taken@mail.com"));
+        when(userRepository.findExistingUserIds(anyCollection())).thenReturn(Set.of());
+        InputStream body = stream(String.join("\n",
+                row(1, "first@mail.com"),
+                row(2, "first@mail.com"),
+                row(3, "taken@mail.com"),
+                "",
+                row(4, "not-an-email"),
+                "{not json"));
+
+        // Act:
+        UserImportResponse result = userImportService.importNdjson(body);
+
+        // Assert:
+        assertEquals(5, result.getTotal());
+        assertEquals(1, result.getCreated());
+        assertEquals(4, result.getFailed());
+        assertEquals(ImportStatus.CREATED, result.getRows().get(0).getStatus());
+        assertEquals(ErrorMessage.EMAIL_ALREADY_EXISTS.getMessage("first@mail.com"), result.getRows().get(1).getError());
+        assertEquals(ErrorMessage.EMAIL_ALREADY_EXISTS.getMessage("taken@mail.com"), result.getRows().get(2).getError());
+        assertEquals("Email should be valid", result.getRows().get(3).getError());
+        assertEquals(ImportStatus.FAILED, result.getRows().get(4).getStatus());
+
+        // Verify:
+        verify(userMapper, times(1)).createUser(any());
+    }
+
+    @Test
+    public void importJsonArrayChecksDuplicatesOncePerBatch() {
+        // Arrange:
+        when(userRepository.findExistingEmails(anyCollection())).thenReturn(Set.of());
+        when(userRepository.findExistingUserIds(anyCollection())).thenReturn(Set.of());
+        InputStream body = stream("[" + String.join(",",
+                row(1, "a@mail.com"),
+                row(2, "b@mail.com"),
+                row(3, "c@mail.com"),
+                row(4, "d@mail.com"),
+                row(5, "e@mail.com")) + "]");
+
+        // Act:
+        UserImportResponse result = userImportService.importJsonArray(body);
+
+        // Assert:
+        assertEquals(5, result.getCreated());
+        assertEquals(0, result.getFailed());
+
+        // Verify:
+        verify(userRepository, times(3)).findExistingEmails(anyCollection());
+        verify(userRepository, times(3)).findExistingUserIds(anyCollection());
+        verify(userRepository, times(3)).saveAll(anyList());
+        verify(userRepository, never()).existsByEmail(anyString());
+    }
+
+    @Test
+    public void importJsonArrayRetriesBatchAfterConcurrentInsert() {
+        // Arrange:
+        when(userRepository.findExistingEmails(anyCollection()))
+                .thenReturn(Set.of())
+                .thenReturn(Set.of("a@mail.com"));
+        when(userRepository.findExistingUserIds(anyCollection())).thenReturn(Set.of());
+        doThrow(new DataIntegrityViolationException("duplicate key"))
+                .doNothing()
+                .when(userRepository).flush();
+
+        // Act:
+        UserImportResponse result = userImportService.importJsonArray(stream("[" + row(1, "a@mail.com") + "," + row(2, "b@mail.com") + "]"));
+
+        // Assert:
+        assertEquals(1, result.getCreated());
+        assertEquals(ErrorMessage.EMAIL_ALREADY_EXISTS.getMessage("a@mail.com"), result.getRows().get(0).getError());
+        assertEquals(ImportStatus.CREATED, result.getRows().get(1).getStatus());
+    }
+
+    @Test
+    public void importJsonArrayNotArrayThrowException() {
+        // Act:
+        InvalidDataException exception = assertThrows(InvalidDataException.class,
+                () -> userImportService.importJsonArray(stream(row(1, "a@mail.com"))));
+
+        // Assert:
+        assertEquals(ErrorMessage.INVALID_IMPORT_PAYLOAD.getMessage("expected a JSON array"), exception.getMessage());
+
+        // Verify:
+        verifyNoInteractions(userRepository);
+    }
+
+    private static String row(int userId, String email) {
+        return "{\"userId\":" + userId + ",\"name\":\"Name\",\"surname\":\"Surname\",\"birthDate\":\"1990-01-01\",\"email\":\"" + email + "\"}";
+    }
+
+    private static InputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
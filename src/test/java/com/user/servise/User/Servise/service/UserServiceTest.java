@@ -1,17 +1,19 @@
 package com.user.servise.User.Servise.service;
 
+import com.userservise.app.cache.CardOwnerIndex;
 import com.userservise.app.mapper.UserMapper;
 import com.userservise.app.model.constants.ErrorMessage;
 import com.userservise.app.model.dto.UserDto;
 import com.userservise.app.model.dto.UserRequest;
-import com.userservise.app.model.entity.Card;
 import com.userservise.app.model.entity.User;
 import com.userservise.app.model.enums.ActiveStatus;
 import com.userservise.app.model.exception.DataExistException;
 import com.userservise.app.model.exception.InvalidDataException;
 import com.userservise.app.model.exception.NotFoundException;
+import com.userservise.app.model.response.BatchResponse;
 import com.userservise.app.repository.UserRepository;
 import com.userservise.app.service.Impl.UserServiceImpl;
+import com.userservise.app.utils.MicroBatcher;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
@@ -19,15 +21,20 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.domain.Specification;
 
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -43,6 +50,15 @@ public class UserServiceTest {
     @Mock
     private UserMapper userMapper;
 
+    @Mock
+    private CacheManager cacheManager;
+
+    @Mock
+    private CardOwnerIndex cardOwnerIndex;
+
+    @Mock
+    private MicroBatcher<Integer, UserDto> userBatchLoader;
+
     @InjectMocks
     private UserServiceImpl userService;
 
@@ -113,8 +129,7 @@ public class UserServiceTest {
     @Test
     public void getUserByIdSuccessful() {
         // Arrange:
-        when(userRepository.findUserByUserId(anyInt())).thenReturn(Optional.of(user));
-        when(userMapper.toDto(any(User.class))).thenReturn(userDto);
+        when(userBatchLoader.load(1)).thenReturn(userDto);
 
         // Act:
         UserDto result = userService.getUserById(1);
@@ -126,15 +141,14 @@ public class UserServiceTest {
         assertEquals(user.getEmail(), result.getEmail());
 
         // Verify:
-        verify(userRepository, times(1)).findUserByUserId(anyInt());
-        verify(userMapper, times(1)).toDto(any(User.class));
+        verify(userBatchLoader, times(1)).load(1);
+        verify(userRepository, never()).findUserByUserId(anyInt());
     }
 
     @Test
     public void getUserByIdThrowException() {
         // Arrange:
-        when(userRepository.findUserByUserId(anyInt())).
-                thenThrow(new NotFoundException(ErrorMessage.USER_NOT_FOUND_BY_ID.getMessage(1)));
+        when(userBatchLoader.load(1)).thenReturn(null);
 
         // Act:
         NotFoundException result = assertThrows(NotFoundException.class, () -> userService.getUserById(1));
@@ -143,7 +157,7 @@ public class UserServiceTest {
         assertEquals(ErrorMessage.USER_NOT_FOUND_BY_ID.getMessage(1), result.getMessage());
 
         // Verify:
-        verify(userRepository, times(1)).findUserByUserId(1);
+        verify(userBatchLoader, times(1)).load(1);
     }
 
     @Test
@@ -167,6 +181,40 @@ public class UserServiceTest {
         verify(userRepository, times(1)).findAll(any(Specification.class), eq(pageable));
     }
 
+    @Test
+    public void scrollUsersSuccessful() {
+        // Arrange:
+        Slice<User> response = new SliceImpl<>(List.of(user), PageRequest.of(0, 1), true);
+
+        when(userRepository.findBy(any(Specification.class), any())).thenReturn(response);
+        when(userMapper.toDto(any(User.class))).thenReturn(userDto);
+
+        // Act:
+        Slice<UserDto> result = userService.scrollUsers("testName", null, 10, 1);
+
+        // Assert:
+        assertNotNull(result);
+        assertTrue(result.hasNext());
+        assertEquals(userDto.getUserId(), result.getContent().getFirst().getUserId());
+
+        // Verify:
+        verify(userRepository, times(1)).findBy(any(Specification.class), any());
+        verify(userRepository, never()).findAll(any(Specification.class), any(Pageable.class));
+    }
+
+    @Test
+    public void scrollUsersInvalidLimitThrowException() {
+        // Act:
+        InvalidDataException result = assertThrows(InvalidDataException.class,
+                () -> userService.scrollUsers(null, null, null, 0));
+
+        // Assert:
+        assertEquals(ErrorMessage.INVALID_PAGE_LIMIT.getMessage(100), result.getMessage());
+
+        // Verify:
+        verifyNoInteractions(userRepository);
+    }
+
     @Test
     public void updateUserSuccessful() {
         // Arrange:
@@ -183,6 +231,7 @@ public class UserServiceTest {
         doNothing().when(userMapper).updateUser(userRequest, user);
         when(userRepository.save(any(User.class))).thenReturn(user);
         when(userMapper.toDto(any(User.class))).thenReturn(userDto);
+        when(userRepository.bumpVersion(user.getUserId())).thenReturn(Optional.of(8L));
 
         // Act:
         UserDto result = userService.updateUser(anyInt(), userRequest);
@@ -192,12 +241,14 @@ public class UserServiceTest {
         assertEquals(user.getUserId(), result.getUserId());
         assertEquals(user.getName(), result.getName());
         assertEquals(user.getSurname(), result.getSurname());
+        assertEquals(8L, result.getVersion());
 
         // Verify:
         verify(userRepository, times(1)).findUserByUserId(anyInt());
         verify(userMapper, times(1)).updateUser(userRequest, user);
         verify(userRepository, times(1)).save(any(User.class));
         verify(userMapper, times(1)).toDto(any(User.class));
+        verify(userRepository, times(1)).bumpVersion(user.getUserId());
     }
 
     @Test
@@ -247,11 +298,11 @@ public class UserServiceTest {
         // Arrange:
         user.setName("newName");
         user.setSurname("newSurname");
-        user.setCards(List.of(new Card(), new Card(), new Card(), new Card(), new Card(), new Card()));
         userRequest.setName("newName");
         userRequest.setSurname("newSurname");
 
         when(userRepository.findUserByUserId(anyInt())).thenReturn(Optional.of(user));
+        when(userRepository.countCardsByUserId(anyInt())).thenReturn(6L);
 
         // Act:
         InvalidDataException result = assertThrows(InvalidDataException.class, () -> userService.updateUser(1, userRequest));
@@ -267,28 +318,28 @@ public class UserServiceTest {
     public void activateUserSuccessful() {
         // Arrange:
         userDto.setActive(ActiveStatus.ACTIVE);
+        List<UserRepository.UserCardRow> rows = List.of(mock(UserRepository.UserCardRow.class));
 
-        when(userRepository.findUserByUserId(anyInt())).thenReturn(Optional.of(user));
-        when(userRepository.save(any(User.class))).thenReturn(user);
-        when(userMapper.toDto(any(User.class))).thenReturn(userDto);
+        when(userRepository.updateActive(1, "ACTIVE")).thenReturn(rows);
+        when(userMapper.toDto(rows)).thenReturn(userDto);
 
         // Act:
-        UserDto result = userService.activateUser(anyInt());
+        UserDto result = userService.activateUser(1);
 
         // Assert:
         assertNotNull(result);
         assertEquals(ActiveStatus.ACTIVE, result.getActive());
 
-        // Verify:
-        verify(userRepository, times(1)).findUserByUserId(anyInt());
-        verify(userRepository, times(1)).save(any(User.class));
-        verify(userMapper, times(1)).toDto(any(User.class));
+        // Verify: one UPDATE ... RETURNING, nothing loaded or saved through the entity
+        verify(userRepository, times(1)).updateActive(1, "ACTIVE");
+        verify(userRepository, never()).findUserByUserId(anyInt());
+        verify(userRepository, never()).save(any(User.class));
     }
 
     @Test
     public void activateUser_serNotFoundThrowException() {
         // Arrange:
-        when(userRepository.findUserByUserId(anyInt())).thenReturn(Optional.empty());
+        when(userRepository.updateActive(1, "ACTIVE")).thenReturn(List.of());
 
         // Act:
         NotFoundException result = assertThrows(NotFoundException.class, () -> userService.activateUser(1));
@@ -297,34 +348,34 @@ public class UserServiceTest {
         assertEquals(ErrorMessage.USER_NOT_FOUND_BY_ID.getMessage(1), result.getMessage());
 
         // Verify:
-        verify(userRepository, times(1)).findUserByUserId(anyInt());
+        verify(userRepository, times(1)).updateActive(1, "ACTIVE");
+        verifyNoInteractions(userMapper);
     }
 
     @Test
     public void deactivateUserSuccessful() {
         // Arrange:
         userDto.setActive(ActiveStatus.INACTIVE);
+        List<UserRepository.UserCardRow> rows = List.of(mock(UserRepository.UserCardRow.class));
 
-        when(userRepository.findUserByUserId(user.getUserId())).thenReturn(Optional.of(user));
-        when(userRepository.save(any(User.class))).thenReturn(user);
-        when(userMapper.toDto(any(User.class))).thenReturn(userDto);
+        when(userRepository.updateActive(user.getUserId(), "INACTIVE")).thenReturn(rows);
+        when(userMapper.toDto(rows)).thenReturn(userDto);
 
         // Act:
-        UserDto response = userService.deactivateUser(user.getId());
+        UserDto response = userService.deactivateUser(user.getUserId());
 
         // Assert:
         assertEquals(ActiveStatus.INACTIVE, response.getActive());
 
         // Verify:
-        verify(userRepository, times(1)).findUserByUserId(user.getUserId());
-        verify(userRepository, times(1)).save(any(User.class));
-        verify(userMapper, times(1)).toDto(any(User.class));
+        verify(userRepository, times(1)).updateActive(user.getUserId(), "INACTIVE");
+        verify(userRepository, never()).save(any(User.class));
     }
 
     @Test
     public void deactivateUserUserNotFoundThrowException() {
         // Arrange:
-        when(userRepository.findUserByUserId(1)).thenReturn(Optional.empty());
+        when(userRepository.updateActive(1, "INACTIVE")).thenReturn(List.of());
 
         // Act:
         NotFoundException result = assertThrows(NotFoundException.class, () -> userService.deactivateUser(1));
@@ -333,27 +384,28 @@ public class UserServiceTest {
         assertEquals(ErrorMessage.USER_NOT_FOUND_BY_ID.getMessage(1), result.getMessage());
 
         // Verify:
-        verify(userRepository, times(1)).findUserByUserId(1);
+        verify(userRepository, times(1)).updateActive(1, "INACTIVE");
     }
 
     @Test
     public void deleteByIdSuccessful() {
         // Arrange:
-        when(userRepository.existsByUserId(1)).thenReturn(true);
-        doNothing().when(userRepository).deleteUserByUserId(1);
+        when(userRepository.findCardIdsByUserIdIn(Set.of(1))).thenReturn(List.of(10, 11));
+        when(userRepository.deleteUsersByUserIdIn(Set.of(1))).thenReturn(1);
 
         // Act:
         userService.deleteById(1);
 
         // Verify:
-        verify(userRepository, times(1)).existsByUserId(1);
-        verify(userRepository, times(1)).deleteUserByUserId(1);
+        verify(userRepository, times(1)).deleteUsersByUserIdIn(Set.of(1));
+        verify(cardOwnerIndex, times(1)).removeAll(List.of(10, 11));
+        verify(userRepository, never()).findUserByUserId(anyInt());
     }
 
     @Test
     public void deleteByIdUserNotFoundThrowException() {
         // Arrange:
-        when(userRepository.existsByUserId(anyInt())).thenReturn(false);
+        when(userRepository.deleteUsersByUserIdIn(Set.of(1))).thenReturn(0);
 
         // Act:
         NotFoundException result = assertThrows(NotFoundException.class, () -> userService.deleteById(1));
@@ -362,6 +414,62 @@ public class UserServiceTest {
         assertEquals(ErrorMessage.USER_NOT_FOUND_BY_ID.getMessage(1), result.getMessage());
 
         // Verify:
-        verify(userRepository, times(1)).existsByUserId(anyInt());
+        verify(userRepository, times(1)).deleteUsersByUserIdIn(Set.of(1));
+    }
+
+    @Test
+    public void deleteByIdsDeletesExistingUsersInOneStatement() {
+        // Arrange:
+        Cache cardsCache = mock(Cache.class);
+        when(userRepository.findExistingUserIds(Set.of(1, 2, 3))).thenReturn(Set.of(1, 3));
+        when(userRepository.findCardIdsByUserIdIn(Set.of(1, 3))).thenReturn(List.of(10, 30));
+        when(userRepository.deleteUsersByUserIdIn(Set.of(1, 3))).thenReturn(2);
+        when(cacheManager.getCache(anyString())).thenReturn(cardsCache);
+
+        // Act:
+        BatchResponse<Integer> result = userService.deleteByIds(List.of(3, 2, 1));
+
+        // Assert:
+        assertEquals(List.of(3, 1), result.getContent());
+        assertEquals(List.of(2), result.getNotFound());
+
+        // Verify:
+        verify(userRepository, times(1)).deleteUsersByUserIdIn(Set.of(1, 3));
+        verify(cardOwnerIndex, times(1)).removeAll(List.of(10, 30));
+        verify(cardsCache, times(1)).evict(10);
+        verify(cardsCache, times(1)).evict(30);
+    }
+
+    @Test
+    public void getUsersByIdsLoadsMissingUsersInOneQuery() {
+        // Arrange:
+        when(userRepository.findUsersWithCardsByUserIdIn(Set.of(1, 2))).thenReturn(List.of(user));
+        when(userMapper.toDto(user)).thenReturn(userDto);
+
+        // Act:
+        BatchResponse<UserDto> result = userService.getUsersByIds(List.of(1, 2, 1));
+
+        // Assert:
+        assertEquals(List.of(userDto), result.getContent());
+        assertEquals(List.of(2), result.getNotFound());
+
+        // Verify:
+        verify(userRepository, times(1)).findUsersWithCardsByUserIdIn(anyCollection());
+        verify(cacheManager, times(1)).getCache("users");
+    }
+
+    @Test
+    public void getUsersByIdsThrowExceptionWhenTooManyIds() {
+        // Arrange:
+        List<Integer> userIds = Collections.nCopies(101, 1);
+
+        // Act:
+        InvalidDataException result = assertThrows(InvalidDataException.class, () -> userService.getUsersByIds(userIds));
+
+        // Assert:
+        assertEquals(ErrorMessage.INVALID_BATCH_SIZE.getMessage(100), result.getMessage());
+
+        // Verify:
+        verifyNoInteractions(userRepository, cacheManager);
     }
 }
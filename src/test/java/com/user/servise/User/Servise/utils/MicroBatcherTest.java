@@ -0,0 +1,125 @@
+package com.user.servise.User.Servise.utils;
+
+import com.userservise.app.utils.MicroBatcher;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@TestInstance(TestInstance.Lifecycle.PER_METHOD)
+public class MicroBatcherTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private List<Set<Integer>> batches;
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        batches = new CopyOnWriteArrayList<>();
+    }
+
+    @Test
+    public void concurrentLoadsWithinWindowShareOneBatch() throws Exception {
+        // Arrange:
+        MicroBatcher<Integer, String> batcher = new MicroBatcher<>("users", this::load,
+                Duration.ofSeconds(1), 4, meterRegistry);
+
+        // Act:
+        List<String> results = loadConcurrently(batcher, List.of(1, 2, 2, 3));
+
+        // Assert:
+        assertEquals(List.of("user-1", "user-2", "user-2", "user-3"), results);
+        assertEquals(List.of(Set.of(1, 2, 3)), batches);
+        DistributionSummary batchSizes = meterRegistry.get("batch.loads.size").tag("loader", "users").summary();
+        assertEquals(1, batchSizes.count());
+        assertEquals(3.0, batchSizes.totalAmount());
+    }
+
+    @Test
+    public void fullBatchIsLoadedWithoutWaitingForWindow() throws Exception {
+        // Arrange:
+        MicroBatcher<Integer, String> batcher = new MicroBatcher<>("users", this::load,
+                Duration.ofMinutes(1), 2, meterRegistry);
+
+        // Act:
+        List<String> results = loadConcurrently(batcher, List.of(1, 2));
+
+        // Assert:
+        assertEquals(List.of("user-1", "user-2"), results);
+        assertEquals(List.of(Set.of(1, 2)), batches);
+    }
+
+    @Test
+    public void missingKeysResolveToNull() {
+        // Arrange:
+        MicroBatcher<Integer, String> batcher = new MicroBatcher<>("users", this::load,
+                Duration.ofNanos(200_000), 10, meterRegistry);
+
+        // Act:
+        String result = batcher.load(404);
+
+        // Assert:
+        assertNull(result);
+        assertEquals(List.of(Set.of(404)), batches);
+    }
+
+    @Test
+    public void loaderFailureReachesEveryCallerInBatch() throws Exception {
+        // Arrange:
+        MicroBatcher<Integer, String> batcher = new MicroBatcher<>("users", keys -> {
+            throw new IllegalStateException("database is down");
+        }, Duration.ofMinutes(1), 2, meterRegistry);
+
+        // Act:
+        ExecutionException result = assertThrows(ExecutionException.class, () -> loadConcurrently(batcher, List.of(1, 2)));
+
+        // Assert:
+        assertInstanceOf(IllegalStateException.class, result.getCause());
+    }
+
+    private List<String> loadConcurrently(MicroBatcher<Integer, String> batcher, List<Integer> keys) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<String>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(keys.size())) {
+            for (Integer key : keys)
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return batcher.load(key);
+                }));
+            start.countDown();
+
+            List<String> results = new ArrayList<>();
+            for (Future<String> future : futures)
+                results.add(future.get(10, TimeUnit.SECONDS));
+
+            return results;
+        }
+    }
+
+    private Map<Integer, String> load(Set<Integer> keys) {
+        batches.add(Set.copyOf(keys));
+        Map<Integer, String> values = new HashMap<>();
+        for (Integer key : keys)
+            if (key != 404)
+                values.put(key, "user-" + key);
+
+        return values;
+    }
+}
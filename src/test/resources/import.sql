@@ -0,0 +1,3 @@
+-- Run by Hibernate after it creates the test schema; mirrors what Liquibase changeset user_service:9 adds in production.
+CREATE SEQUENCE IF NOT EXISTS user_service.users_version_seq;
+ALTER TABLE user_service.users ALTER COLUMN version SET DEFAULT nextval('user_service.users_version_seq');